@@ -0,0 +1,46 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// the per-node work of the search: generating neighbors and scoring a board
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+    @Param({"puzzle3x3-31.txt", "puzzle4x4-04.txt", "puzzle4x4-40.txt"})
+    public String puzzle;
+
+    private Object board;
+
+    @Setup
+    public void setup() throws Throwable {
+        board = Puzzles.board(puzzle);
+    }
+
+    @Benchmark
+    public void neighbors(Blackhole bh) throws Throwable {
+        for (Object b : (Iterable<?>) Handles.NEIGHBORS.invokeExact(board))
+            bh.consume(b);
+    }
+
+    @Benchmark
+    public int manhattan() throws Throwable {
+        return (int) Handles.MANHATTAN.invokeExact(board);
+    }
+}
@@ -0,0 +1,84 @@
+package bench;
+
+import edu.princeton.cs.algs4.Point2D;
+import edu.princeton.cs.algs4.RectHV;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+// The assignment classes live in the default package, which a named package (and JMH
+// needs one) cannot import. The benchmarks reach them through these method handles
+// instead: being static final they are constants to the JIT, so invokeExact costs the
+// same as a direct call once compiled. Every class from the default package appears as
+// Object in the handle types.
+final class Handles {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+    static final MethodHandle NEW_BOARD = constructor("Board", int[][].class);
+    static final MethodHandle NEIGHBORS = virtual("Board", "neighbors", Iterable.class);
+    static final MethodHandle MANHATTAN = virtual("Board", "manhattan", int.class);
+
+    static final MethodHandle NEW_SOLVER = constructor("Solver", type("Board"));
+    static final MethodHandle MOVES = virtual("Solver", "moves", int.class);
+
+    static final MethodHandle NEW_KDTREE_BULK = constructor("KdTree", double[].class, double[].class);
+    static final MethodHandle NEAREST_BATCH = virtual("KdTree", "nearest", void.class,
+            double[].class, double[].class, double[].class, double[].class);
+
+    private Handles() {
+    }
+
+    // handles for one point set class: KdTree, GridPointSET or PointSET
+    static final class PointSet {
+        final MethodHandle create;     // () Object
+        final MethodHandle insert;     // (Object, Point2D) void
+        final MethodHandle contains;   // (Object, Point2D) boolean
+        final MethodHandle range;      // (Object, RectHV) Iterable
+        final MethodHandle nearest;    // (Object, Point2D) Point2D
+
+        PointSet(String name) {
+            create = constructor(name);
+            insert = virtual(name, "insert", void.class, Point2D.class);
+            contains = virtual(name, "contains", boolean.class, Point2D.class);
+            range = virtual(name, "range", Iterable.class, RectHV.class);
+            nearest = virtual(name, "nearest", Point2D.class, Point2D.class);
+        }
+    }
+
+    private static Class<?> type(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(name + " is not on the class path", e);
+        }
+    }
+
+    // t with every default-package class replaced by Object
+    private static MethodType opaque(MethodType t) {
+        for (int i = 0; i < t.parameterCount(); i++)
+            if (t.parameterType(i).getPackageName().isEmpty())
+                t = t.changeParameterType(i, Object.class);
+        if (t.returnType().getPackageName().isEmpty())
+            t = t.changeReturnType(Object.class);
+        return t;
+    }
+
+    private static MethodHandle constructor(String name, Class<?>... parameters) {
+        try {
+            MethodHandle h = LOOKUP.findConstructor(type(name), MethodType.methodType(void.class, parameters));
+            return h.asType(opaque(h.type()));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle virtual(String name, String method, Class<?> result, Class<?>... parameters) {
+        try {
+            MethodHandle h = LOOKUP.findVirtual(type(name), method, MethodType.methodType(result, parameters));
+            return h.asType(opaque(h.type()));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package bench;
+
+import edu.princeton.cs.algs4.Point2D;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// KdTree's batch nearest against a loop of single nearest calls over the same
+// queries, on a bulk-loaded tree; both score the time for the whole batch
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class KdTreeBatchBenchmark {
+    private static final int QUERIES = 100_000;
+
+    @Param({"100000", "1000000", "10000000"})
+    public int n;
+
+    @Param({"uniform", "clustered"})
+    public String distribution;
+
+    private Object tree;
+    private Point2D[] queries;
+    private double[] qx, qy, nx, ny;
+
+    @Setup
+    public void setup() throws Throwable {
+        Point2D[] points = Points.generate(distribution, n, 1);
+        double[] x = new double[n], y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = points[i].x();
+            y[i] = points[i].y();
+        }
+        tree = (Object) Handles.NEW_KDTREE_BULK.invokeExact(x, y);
+        queries = Points.generate(distribution, QUERIES, 2);
+        qx = new double[QUERIES];
+        qy = new double[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            qx[i] = queries[i].x();
+            qy[i] = queries[i].y();
+        }
+        nx = new double[QUERIES];
+        ny = new double[QUERIES];
+    }
+
+    @Benchmark
+    public double nearestLoop() throws Throwable {
+        Handles.PointSet ops = KD_TREE;
+        double sum = 0;
+        for (Point2D q : queries)
+            sum += ((Point2D) ops.nearest.invokeExact(tree, q)).x();
+        return sum;
+    }
+
+    @Benchmark
+    public double[] nearestBatch() throws Throwable {
+        Handles.NEAREST_BATCH.invokeExact(tree, qx, qy, nx, ny);
+        return nx;
+    }
+
+    private static final Handles.PointSet KD_TREE = new Handles.PointSet("KdTree");
+}
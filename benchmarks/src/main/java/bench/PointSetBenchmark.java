@@ -0,0 +1,106 @@
+package bench;
+
+import edu.princeton.cs.algs4.Point2D;
+import edu.princeton.cs.algs4.RectHV;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// KdTree and GridPointSET against the brute-force PointSET on the same points and queries.
+// Queries cycle through fixed arrays so every implementation sees the same ones;
+// range rectangles are sized to hold about RANGE_HITS points of a uniform set.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class PointSetBenchmark {
+    private static final int QUERIES = 1 << 10;
+    private static final double RANGE_HITS = 64;
+
+    @Param({"KdTree", "GridPointSET", "PointSET"})
+    public String impl;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int n;
+
+    @Param({"uniform", "clustered"})
+    public String distribution;
+
+    private Handles.PointSet ops;
+    private Point2D[] points;
+    private Object set;
+    private Point2D[] present;   // points in the set
+    private Point2D[] probes;    // fresh points, mostly absent
+    private RectHV[] rects;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        ops = new Handles.PointSet(impl);
+        points = Points.generate(distribution, n, 1);
+        set = build();
+        probes = Points.generate(distribution, QUERIES, 2);
+        present = new Point2D[QUERIES];
+        rects = new RectHV[QUERIES];
+        double side = Math.sqrt(RANGE_HITS / n);
+        for (int i = 0; i < QUERIES; i++) {
+            present[i] = points[(int) ((long) i * n / QUERIES)];
+            double x = Math.min(probes[i].x(), 1.0 - side);
+            double y = Math.min(probes[i].y(), 1.0 - side);
+            rects[i] = new RectHV(x, y, x + side, y + side);
+        }
+    }
+
+    private Object build() throws Throwable {
+        Object s = (Object) ops.create.invokeExact();
+        for (Point2D p : points)
+            ops.insert.invokeExact(s, p);
+        return s;
+    }
+
+    private int next() {
+        return next = (next + 1) & (QUERIES - 1);
+    }
+
+    // time to insert all n points into an empty set
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object insertAll() throws Throwable {
+        return build();
+    }
+
+    @Benchmark
+    public boolean containsPresent() throws Throwable {
+        return (boolean) ops.contains.invokeExact(set, present[next()]);
+    }
+
+    @Benchmark
+    public boolean containsAbsent() throws Throwable {
+        return (boolean) ops.contains.invokeExact(set, probes[next()]);
+    }
+
+    @Benchmark
+    public void range(Blackhole bh) throws Throwable {
+        for (Object p : (Iterable<?>) ops.range.invokeExact(set, rects[next()]))
+            bh.consume(p);
+    }
+
+    @Benchmark
+    public Point2D nearest() throws Throwable {
+        return (Point2D) ops.nearest.invokeExact(set, probes[next()]);
+    }
+}
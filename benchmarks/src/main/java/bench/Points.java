@@ -0,0 +1,44 @@
+package bench;
+
+import edu.princeton.cs.algs4.Point2D;
+
+import java.util.SplittableRandom;
+
+// reproducible point sets in the unit square
+final class Points {
+    private static final int CLUSTERS = 32;
+    private static final double SPREAD = 0.01;   // standard deviation around a cluster center
+
+    private Points() {
+    }
+
+    // n points drawn from distribution ("uniform" or "clustered") with the given seed
+    static Point2D[] generate(String distribution, int n, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Point2D[] points = new Point2D[n];
+        if ("uniform".equals(distribution)) {
+            for (int i = 0; i < n; i++)
+                points[i] = new Point2D(random.nextDouble(), random.nextDouble());
+        }
+        else if ("clustered".equals(distribution)) {
+            // gaussian blobs: many near-duplicates and deep, unbalanced subtrees
+            double[] cx = new double[CLUSTERS], cy = new double[CLUSTERS];
+            for (int c = 0; c < CLUSTERS; c++) {
+                cx[c] = random.nextDouble();
+                cy[c] = random.nextDouble();
+            }
+            for (int i = 0; i < n; i++) {
+                int c = random.nextInt(CLUSTERS);
+                points[i] = new Point2D(clamp(cx[c] + SPREAD * random.nextGaussian()),
+                        clamp(cy[c] + SPREAD * random.nextGaussian()));
+            }
+        }
+        else
+            throw new IllegalArgumentException("unknown distribution " + distribution);
+        return points;
+    }
+
+    private static double clamp(double v) {
+        return Math.min(1.0, Math.max(0.0, v));
+    }
+}
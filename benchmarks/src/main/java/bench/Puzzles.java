@@ -0,0 +1,34 @@
+package bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+
+// loads puzzle files packaged under /puzzles, in the format Solver.main reads
+final class Puzzles {
+    private Puzzles() {
+    }
+
+    static int[][] tiles(String file) {
+        try (InputStream in = Puzzles.class.getResourceAsStream("/puzzles/" + file)) {
+            if (in == null)
+                throw new IllegalArgumentException("no puzzle " + file);
+            Scanner scanner = new Scanner(in, StandardCharsets.US_ASCII);
+            int n = scanner.nextInt();
+            int[][] tiles = new int[n][n];
+            for (int i = 0; i < n; i++)
+                for (int j = 0; j < n; j++)
+                    tiles[i][j] = scanner.nextInt();
+            return tiles;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // a Board for the puzzle in file
+    static Object board(String file) throws Throwable {
+        return (Object) Handles.NEW_BOARD.invokeExact(tiles(file));
+    }
+}
@@ -0,0 +1,42 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// whole A* solves over a corpus graded by solution length: puzzle3x3-N and
+// puzzle4x4-N need N moves, puzzle4x4-04.txt is the assignment's sample
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SolverBenchmark {
+    @Param({"puzzle3x3-10.txt", "puzzle3x3-20.txt", "puzzle3x3-31.txt", "puzzle4x4-04.txt",
+            "puzzle4x4-20.txt", "puzzle4x4-30.txt", "puzzle4x4-40.txt"})
+    public String puzzle;
+
+    private Object board;
+
+    @Setup
+    public void setup() throws Throwable {
+        board = Puzzles.board(puzzle);
+    }
+
+    @Benchmark
+    public int solve() throws Throwable {
+        Object solver = (Object) Handles.NEW_SOLVER.invokeExact(board);
+        return (int) Handles.MOVES.invokeExact(solver);
+    }
+}
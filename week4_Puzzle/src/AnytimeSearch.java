@@ -0,0 +1,198 @@
+import java.util.Arrays;
+
+// anytime repairing A* (ARA*, Likhachev, Gordon and Thrun 2003): weighted A*
+// with a weight that falls towards 1, each pass reusing the work of the last.
+// Within a pass a board is expanded at most once; boards improved after their
+// expansion wait in INCONS and rejoin the open list for the next pass. After
+// each pass the solution found is within
+//     bound = moves / min(g + h over open and INCONS boards)
+// of the shortest one. ARA*'s tighter min(w, bound) holds only for a consistent
+// heuristic, so it is not used; passes at w = 1 repeat until the bound reaches 1.
+class AnytimeSearch {
+    private static final byte NEW = 0, OPEN = 1, CLOSED = 2, INCONS = 3;
+
+    private final Board initial;
+    private final Heuristic heuristic;
+    private final double startWeight;
+    private final double step;
+    private final SearchStats stats;        // null if not collecting
+    private final SearchListener listener;  // null if nobody listens
+    private final SearchBudget budget;
+    private final long nodeBytes;
+
+    // every board seen, once (a board whose key collides with an earlier one's may
+    // be seen again): boards[id] reached in g[id] moves from parent[id]
+    private final StateTable ids = new StateTable();
+    private Board[] boards = new Board[1 << 10];
+    private int[] g = new int[1 << 10];
+    private int[] h = new int[1 << 10];
+    private int[] parent = new int[1 << 10];
+    private byte[] state = new byte[1 << 10];
+    private int size;
+    private int charged;        // boards reported to the budget
+    private int expanded;
+    private int goal = -1;      // id of the goal board once seen
+    private int closest;        // id of the expanded board with the smallest h
+
+    private MovePath incumbent; // best solution so far
+    private double bound = Double.POSITIVE_INFINITY;
+
+    AnytimeSearch(Board initial, SolverOptions options, SearchStats stats, SearchBudget budget) {
+        this.initial = initial;
+        heuristic = options.heuristic();
+        startWeight = options.weight();
+        step = options.weightStep();
+        this.stats = stats;
+        listener = options.listener();
+        this.budget = budget;
+        nodeBytes = SearchBudget.nodeBytes(initial.dimension()) + 16;  // StateTable entry too
+    }
+
+    // the best solution within the budget, the shortest if it lasts; if the budget
+    // runs out before any, the path to the board with the smallest h; null if unsolvable
+    MovePath solve() {
+        if (!initial.isSolvable())
+            return null;
+        add(initial, 0, -1);
+        state[0] = OPEN;
+        if (stats != null)
+            stats.searching(h[0]);
+        double w = startWeight;
+        while (true) {
+            if (stats != null)
+                stats.iteration();
+            WeightedKey key = new WeightedKey(w);
+            // 上一轮的OPEN和INCONS合并成新的open list，按新的权重重新排序
+            BucketQueue open = new BucketQueue();
+            for (int id = 0; id < size; id++) {
+                if (state[id] == OPEN || state[id] == INCONS) {
+                    state[id] = OPEN;
+                    open.insert(id, key.key(g[id], h[id]), g[id]);
+                }
+                else
+                    state[id] = NEW;
+            }
+            if (!improve(open, key))
+                break;
+            int lower = Integer.MAX_VALUE;
+            for (int id = 0; id < size; id++)
+                if (state[id] == OPEN || state[id] == INCONS)
+                    lower = Math.min(lower, g[id] + h[id]);
+            // 启发函数不一致时，INCONS里可能还有g + h < g[goal]的board，界不能取成w
+            double proven = g[goal] == 0 ? 1.0 : Math.max(1.0, (double) g[goal] / lower);
+            if (incumbent == null || g[goal] < incumbent.length()) {
+                incumbent = path(goal);
+                bound = proven;
+                if (listener != null)
+                    listener.improved(incumbent, bound);
+            }
+            else
+                bound = Math.min(bound, proven);
+            if (bound <= 1.0)
+                break;
+            // 已证明的界比下一个权重还小时直接跳过去
+            w = Math.max(1.0, Math.min(w - step, bound));
+        }
+        if (stats != null)
+            stats.rebuilding();
+        return incumbent != null ? incumbent : path(closest);
+    }
+
+    // how much longer than a shortest one the solution may be,
+    // infinite if none was found
+    double bound() {
+        return bound;
+    }
+
+    // one weighted A* pass: expand boards until none on the open list could lead
+    // to a solution shorter than the goal's; false if the budget runs out first
+    private boolean improve(BucketQueue open, WeightedKey key) {
+        while (!open.isEmpty()) {
+            int k = open.minKey();
+            if (goal >= 0 && key.key(g[goal], 0) <= k)
+                return true;
+            int id = open.delMin();
+            if (state[id] != OPEN || key.key(g[id], h[id]) != k)
+                continue;   // expanded or improved since this entry was queued
+            state[id] = CLOSED;
+            if (h[id] < h[closest])
+                closest = id;
+            if (stats != null)
+                stats.expand(h[id]);
+            if (++expanded % SearchBudget.CHECK_INTERVAL == 0) {
+                if (!budget.check(size - charged, (size - charged) * nodeBytes))
+                    return false;
+                charged = size;
+            }
+            Board board = boards[id];
+            int ng = g[id] + 1;
+            for (int dir = 0; dir < 4; dir++) {
+                int to = board.target(dir);
+                if (to < 0)
+                    continue;
+                Board next = board.moveBlank(to);
+                int j = ids.get(next.key());
+                if (j >= 0 && !boards[j].equals(next))
+                    j = -1;     // another board with the same zobrist key (n > 4)
+                if (j < 0) {
+                    j = add(next, ng, id);
+                    state[j] = OPEN;
+                    open.insert(j, key.key(ng, h[j]), ng);
+                }
+                else if (ng < g[j]) {
+                    g[j] = ng;
+                    parent[j] = id;
+                    if (state[j] == CLOSED)
+                        state[j] = INCONS;
+                    else if (state[j] != INCONS) {
+                        state[j] = OPEN;
+                        open.insert(j, key.key(ng, h[j]), ng);
+                    }
+                }
+                else {
+                    if (stats != null)
+                        stats.duplicate();
+                    continue;
+                }
+                if (stats != null)
+                    stats.generate();
+            }
+            if (stats != null)
+                stats.open(open.size());
+        }
+        return goal >= 0;
+    }
+
+    private int add(Board board, int moves, int pre) {
+        if (size == boards.length) {
+            boards = Arrays.copyOf(boards, 2 * size);
+            g = Arrays.copyOf(g, 2 * size);
+            h = Arrays.copyOf(h, 2 * size);
+            parent = Arrays.copyOf(parent, 2 * size);
+            state = Arrays.copyOf(state, 2 * size);
+        }
+        boards[size] = board;
+        g[size] = moves;
+        h[size] = heuristic.estimate(board);
+        parent[size] = pre;
+        // 键冲突时表里保留先来的board，后来的这个不再被查到，可能会重复展开，但结果仍然正确
+        if (ids.get(board.key()) < 0)
+            ids.put(board.key(), size);
+        if (board.isGoal())
+            goal = size;
+        return size++;
+    }
+
+    // the moves from initial to boards[id] along the parent links; a parent can
+    // have been improved since, so the chain may be shorter than g[id]
+    private MovePath path(int id) {
+        int length = 0;
+        for (int p = id; parent[p] >= 0; p = parent[p])
+            length++;
+        int[] directions = new int[length];
+        for (int p = id; parent[p] >= 0; p = parent[p])
+            directions[--length] = MovePath.direction(boards[parent[p]].blankSquare(),
+                    boards[p].blankSquare(), initial.dimension());
+        return new MovePath(initial, directions, directions.length);
+    }
+}
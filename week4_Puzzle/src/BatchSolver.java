@@ -0,0 +1,137 @@
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// solves many puzzle files at once on a work-stealing pool; at most maxInFlight
+// searches exist at a time, which bounds the memory held by open lists
+public class BatchSolver {
+    // outcome of one puzzle file
+    public static class Result {
+        private final Path file;
+        private final int moves;       // -1 if unsolvable or failed
+        private final long nanos;      // time spent reading and solving
+        private final String error;    // null unless the file could not be solved
+
+        Result(Path file, int moves, long nanos, String error) {
+            this.file = file;
+            this.moves = moves;
+            this.nanos = nanos;
+            this.error = error;
+        }
+
+        public Path file() {
+            return file;
+        }
+
+        public int moves() {
+            return moves;
+        }
+
+        public long nanos() {
+            return nanos;
+        }
+
+        public String error() {
+            return error;
+        }
+
+        // tab-separated: file, moves (or the error), latency in microseconds
+        public String toString() {
+            return file + "\t" + (error == null ? String.valueOf(moves) : "error: " + error)
+                    + "\t" + nanos / 1000;
+        }
+    }
+
+    private final SolverOptions options;
+    private final int threads;
+    private final int maxInFlight;
+
+    // options are shared by all searches, so their heuristic must be thread-safe
+    public BatchSolver(SolverOptions options, int threads, int maxInFlight) {
+        if (options == null || threads < 1 || maxInFlight < 1)
+            throw new IllegalArgumentException();
+        this.options = options;
+        this.threads = threads;
+        this.maxInFlight = maxInFlight;
+    }
+
+    // solve every file, passing each result to sink as soon as it is ready;
+    // sink is called from the pool's threads and must be thread-safe
+    public void solve(Iterable<Path> files, Consumer<Result> sink) throws InterruptedException {
+        if (files == null || sink == null)
+            throw new IllegalArgumentException();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        Semaphore permits = new Semaphore(maxInFlight);
+        ThreadLocal<PuzzleReader> readers = ThreadLocal.withInitial(PuzzleReader::new);
+        try {
+            for (Path file : files) {
+                // 同时进行的搜索数不超过maxInFlight，文件列表也是边读边提交
+                permits.acquire();
+                pool.execute(() -> {
+                    try {
+                        sink.accept(solve(file, readers.get()));
+                    }
+                    finally {
+                        permits.release();
+                    }
+                });
+            }
+            permits.acquire(maxInFlight);
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    private Result solve(Path file, PuzzleReader reader) {
+        long start = System.nanoTime();
+        try {
+            Board initial = reader.read(file);
+            Solver solver = new Solver(initial, options);
+            return new Result(file, solver.moves(), System.nanoTime() - start, null);
+        }
+        catch (IOException | RuntimeException e) {
+            return new Result(file, -1, System.nanoTime() - start, e.toString());
+        }
+    }
+
+    // solve every *.txt file in a directory:
+    // java BatchSolver dir [threads] [maxInFlight]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path dir = Paths.get(args[0]);
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                                      : Runtime.getRuntime().availableProcessors();
+        int maxInFlight = args.length > 2 ? Integer.parseInt(args[2]) : 2 * threads;
+        BatchSolver batch = new BatchSolver(new SolverOptions(), threads, maxInFlight);
+
+        AtomicLong count = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        AtomicLong totalNanos = new AtomicLong();
+        AtomicLong maxNanos = new AtomicLong();
+        long start = System.nanoTime();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.txt")) {
+            batch.solve(files, r -> {
+                count.incrementAndGet();
+                if (r.error() != null)
+                    failed.incrementAndGet();
+                totalNanos.addAndGet(r.nanos());
+                maxNanos.accumulateAndGet(r.nanos(), Math::max);
+                StdOut.println(r);
+            });
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long n = count.get();
+        StdOut.printf("# %d puzzles (%d failed) in %.3f s: %.1f puzzles/s, "
+                              + "mean %d us, max %d us%n",
+                      n, failed.get(), seconds, n / seconds,
+                      n == 0 ? 0 : totalNanos.get() / n / 1000, maxNanos.get() / 1000);
+    }
+}
@@ -0,0 +1,188 @@
+import java.util.Arrays;
+
+// bidirectional A*: one search runs from the initial board towards the goal and one
+// from the goal towards the initial board, until no path through either open list
+// can beat the best board where they have met. Every board seen keeps only its
+// number of moves and the 2-bit direction of the move that reached it; the path is
+// rebuilt by undoing those moves from the meeting board. As no board is kept, boards
+// are told apart by Board.key() alone; for n > 4 that is a 64-bit zobrist hash,
+// and two boards sharing one within a search that fits in memory is assumed away.
+class BidirectionalSearch {
+    private final Board initial;
+    private final Side forward;
+    private final Side backward;
+    private final SearchStats stats;    // null if not collecting
+    private final SearchBudget budget;  // null if unlimited
+
+    // one direction of the search
+    private static class Side {
+        private final StateTable seen = new StateTable();   // key -> moves << 2 | direction
+        private final BucketQueue open = new BucketQueue();
+        private final Heuristic heuristic;                  // null for the backward side
+        private final int[] targetSquare;                   // where each tile ends up
+        private Board[] boards = new Board[1 << 10];        // boards[id] of open nodes
+        private int[] moves = new int[1 << 10];
+        private int size;
+
+        Side(Board start, Heuristic heuristic, Board target) {
+            this.heuristic = heuristic;
+            int n = target.dimension();
+            targetSquare = new int[n * n];
+            for (int i = 0; i < n * n; i++)
+                targetSquare[target.tileAt(i)] = i;
+            seen.put(start.key(), 0);
+            add(start, 0);
+        }
+
+        void add(Board board, int g) {
+            if (size == boards.length) {
+                boards = Arrays.copyOf(boards, 2 * size);
+                moves = Arrays.copyOf(moves, 2 * size);
+            }
+            boards[size] = board;
+            moves[size] = g;
+            open.insert(size++, g + estimate(board), g);
+        }
+
+        // lower bound on the moves from board to this side's target
+        int estimate(Board board) {
+            if (heuristic != null)
+                return heuristic.estimate(board);
+            // 反向搜索的目标是初始棋盘，用到初始棋盘的Manhattan距离
+            int n = board.dimension(), manh = 0;
+            for (int i = 0; i < n * n; i++) {
+                int t = board.tileAt(i);
+                if (t != 0)
+                    manh += Math.abs(targetSquare[t] / n - i / n) + Math.abs(targetSquare[t] % n - i % n);
+            }
+            return manh;
+        }
+    }
+
+    BidirectionalSearch(Board initial, Heuristic heuristic) {
+        this(initial, heuristic, null, null);
+    }
+
+    BidirectionalSearch(Board initial, Heuristic heuristic, SearchStats stats, SearchBudget budget) {
+        this.initial = initial;
+        this.stats = stats;
+        this.budget = budget;
+        int n = initial.dimension();
+        int[][] tiles = new int[n][n];
+        for (int i = 0; i < n * n - 1; i++)
+            tiles[i / n][i % n] = i + 1;
+        Board goal = new Board(tiles);
+        forward = new Side(initial, heuristic, goal);
+        backward = new Side(goal, null, initial);
+    }
+
+    // a shortest solution, or null if the board cannot be solved; if the budget
+    // runs out first, the path to the forward board with the smallest estimate
+    MovePath solve() {
+        if (!initial.isSolvable())
+            return null;
+        int best = Integer.MAX_VALUE;
+        Board meet = initial.isGoal() ? initial : null;
+        if (meet != null)
+            best = 0;
+        if (stats != null)
+            stats.searching(forward.open.minKey());
+        long nodeBytes = 2 * SearchBudget.nodeBytes(initial.dimension());  // StateTable entries too
+        int charged = 0, expanded = 0;
+        Board closest = initial;
+        int closestH = forward.open.minKey();
+        while (!forward.open.isEmpty() && !backward.open.isEmpty()) {
+            // 两边open list中f的最小值都是经过它们的路径长度的下界
+            if (Math.max(forward.open.minKey(), backward.open.minKey()) >= best)
+                break;
+            Side side = forward.open.size() <= backward.open.size() ? forward : backward;
+            Side other = side == forward ? backward : forward;
+            int f = side.open.minKey();
+            int id = side.open.delMin();
+            Board board = side.boards[id];
+            int g = side.moves[id];
+            side.boards[id] = null;
+            int info = side.seen.get(board.key());
+            if (info >>> 2 < g) {
+                // reached again by a shorter path after this entry was queued
+                if (stats != null)
+                    stats.duplicate();
+                continue;
+            }
+            if (stats != null)
+                stats.expand(f - g);
+            if (side == forward && f - g < closestH) {
+                closestH = f - g;
+                closest = board;
+            }
+            if (budget != null && ++expanded % SearchBudget.CHECK_INTERVAL == 0) {
+                int stored = forward.seen.size() + backward.seen.size();
+                if (!budget.check(stored - charged, (stored - charged) * nodeBytes))
+                    return towards(closest);
+                charged = stored;
+            }
+            for (int dir = 0; dir < 4; dir++) {
+                int to = board.target(dir);
+                if (to < 0 || g > 0 && dir == ((info & 3) ^ 1))
+                    continue;
+                Board next = board.moveBlank(to);
+                int seen = side.seen.get(next.key());
+                if (seen >= 0 && seen >>> 2 <= g + 1) {
+                    if (stats != null)
+                        stats.duplicate();
+                    continue;
+                }
+                side.seen.put(next.key(), (g + 1) << 2 | dir);
+                side.add(next, g + 1);
+                if (stats != null)
+                    stats.generate();
+                int met = other.seen.get(next.key());
+                if (met >= 0 && g + 1 + (met >>> 2) < best) {
+                    best = g + 1 + (met >>> 2);
+                    meet = next;
+                }
+            }
+            if (stats != null)
+                stats.open(forward.open.size() + backward.open.size());
+        }
+        if (stats != null)
+            stats.rebuilding();
+        return path(meet);
+    }
+
+    // the moves the forward search recorded from initial to board
+    private MovePath towards(Board board) {
+        int[] head = walk(forward, board);
+        int[] directions = new int[head.length];
+        for (int i = 0; i < head.length; i++)
+            directions[i] = head[head.length - 1 - i];
+        return new MovePath(initial, directions, directions.length);
+    }
+
+    // the moves from initial to meet, then from meet to the goal
+    private MovePath path(Board meet) {
+        int[] head = walk(forward, meet);
+        int[] tail = walk(backward, meet);
+        int[] directions = new int[head.length + tail.length];
+        // 正向的部分要倒过来；反向的部分每一步都要取反方向
+        for (int i = 0; i < head.length; i++)
+            directions[i] = head[head.length - 1 - i];
+        for (int i = 0; i < tail.length; i++)
+            directions[head.length + i] = tail[i] ^ 1;
+        return new MovePath(initial, directions, directions.length);
+    }
+
+    // directions recorded on side from board back to that side's start, last move first
+    private static int[] walk(Side side, Board board) {
+        int[] directions = new int[side.seen.get(board.key()) >>> 2];
+        int len = 0;
+        while (true) {
+            int info = side.seen.get(board.key());
+            if (info >>> 2 == 0)
+                break;
+            directions[len++] = info & 3;
+            board = board.moveBlank(board.target((info & 3) ^ 1));
+        }
+        return Arrays.copyOf(directions, len);
+    }
+}
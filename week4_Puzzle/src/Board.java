@@ -4,26 +4,147 @@ import java.util.ArrayList;
 import java.util.Arrays;
 
 public class Board {
-    private final int[][] board;
+    // boards up to 4-by-4 fit in one long, 4 bits per tile
+    static final int MAX_PACKED_DIMENSION = 4;
+
+    // directions the blank can move in, as 2-bit codes; dir ^ 1 is the opposite one
+    static final int UP = 0, DOWN = 1, LEFT = 2, RIGHT = 3;
+
     private final int n;
+    private final long packed;    // tile at square i in bits [4i, 4i + 4) when n <= 4
+    private final byte[] tiles;   // tile at square i (two bytes when n * n > 256) when n > 4
+    private final int blank;      // row-major index of the blank square
+    private final long zobrist;   // xor of zobrist(i, tile at i) over all squares i
+    private final int hamming;    // kept up to date by the swap constructor
+    private final int manhattan;
 
     // create a board from an n-by-n array of tiles,
     // where tiles[row][col] = tile at (row, col)
     public Board(int[][] tiles) {
-        board = new int[tiles.length][tiles.length];
         n = tiles.length;
-        for (int i = 0; i < n; i++)
-            for (int j = 0; j < n; j++)
-                board[i][j] = tiles[i][j];
+        int b = -1;
+        if (n <= MAX_PACKED_DIMENSION) {
+            long p = 0;
+            for (int i = 0; i < n; i++)
+                for (int j = 0; j < n; j++) {
+                    p |= (long) tiles[i][j] << ((i * n + j) << 2);
+                    if (tiles[i][j] == 0)
+                        b = i * n + j;
+                }
+            packed = p;
+            this.tiles = null;
+        }
+        else {
+            packed = 0;
+            this.tiles = new byte[n * n * bytesPerTile(n)];
+            for (int i = 0; i < n; i++)
+                for (int j = 0; j < n; j++) {
+                    setTile(this.tiles, n, i * n + j, tiles[i][j]);
+                    if (tiles[i][j] == 0)
+                        b = i * n + j;
+                }
+        }
+        blank = b;
+        int ham = 0, manh = 0;
+        long z = 0;
+        for (int i = 0; i < n * n; i++) {
+            int t = tileAt(i);
+            if (t != 0 && t != i + 1)
+                ham++;
+            manh += distance(t, i);
+            z ^= zobrist(i, t);
+        }
+        hamming = ham;
+        manhattan = manh;
+        zobrist = z;
+    }
+
+    // the board obtained from that by exchanging the tiles on squares i and j
+    private Board(Board that, int i, int j) {
+        n = that.n;
+        int ti = that.tileAt(i);
+        int tj = that.tileAt(j);
+        if (that.tiles == null) {
+            int si = i << 2, sj = j << 2;
+            long p = that.packed & ~(0xFL << si) & ~(0xFL << sj);
+            packed = p | (long) tj << si | (long) ti << sj;
+            tiles = null;
+        }
+        else {
+            packed = 0;
+            tiles = that.tiles.clone();
+            setTile(tiles, n, i, tj);
+            setTile(tiles, n, j, ti);
+        }
+        if (that.blank == i)
+            blank = j;
+        else if (that.blank == j)
+            blank = i;
+        else
+            blank = that.blank;
+        zobrist = that.zobrist ^ zobrist(i, ti) ^ zobrist(j, tj) ^ zobrist(i, tj) ^ zobrist(j, ti);
+        // 只有i、j两格上的tile发生了变化，所以只需修正这两个tile的贡献
+        hamming = that.hamming - misplaced(ti, i) - misplaced(tj, j)
+                + misplaced(ti, j) + misplaced(tj, i);
+        manhattan = that.manhattan - distance(ti, i) - distance(tj, j)
+                + distance(ti, j) + distance(tj, i);
+    }
+
+    private static int bytesPerTile(int n) {
+        return n * n > 256 ? 2 : 1;
+    }
+
+    private static void setTile(byte[] a, int n, int i, int tile) {
+        if (bytesPerTile(n) == 1)
+            a[i] = (byte) tile;
+        else {
+            a[2 * i] = (byte) (tile >>> 8);
+            a[2 * i + 1] = (byte) tile;
+        }
+    }
+
+    // tile on square i, in row-major order
+    int tileAt(int i) {
+        if (tiles == null)
+            return (int) (packed >>> (i << 2)) & 0xF;
+        if (bytesPerTile(n) == 1)
+            return tiles[i] & 0xFF;
+        return (tiles[2 * i] & 0xFF) << 8 | tiles[2 * i + 1] & 0xFF;
+    }
+
+    // Manhattan distance of tile t on square i from its goal square
+    private int distance(int t, int i) {
+        if (t == 0)
+            return 0;
+        return Math.abs((t - 1) / n - i / n) + Math.abs((t - 1) % n - i % n);
+    }
+
+    private static int misplaced(int t, int i) {
+        return t != 0 && t != i + 1 ? 1 : 0;
+    }
+
+    // random-looking 64-bit key for tile t on square i; a SplitMix64 finalizer
+    // stands in for the usual table of random numbers so any n works
+    private static long zobrist(int i, int t) {
+        long z = ((long) i << 32 | t) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // 64-bit key identifying this board among boards of the same dimension:
+    // the packed tiles themselves when n <= 4, the zobrist hash otherwise
+    long key() {
+        return tiles == null ? packed : zobrist;
     }
 
     // string representation of this board
     public String toString() {
         StringBuilder s = new StringBuilder();
-        s.append(board.length + "\n");
-        for (int i = 0; i < board.length; i++) {
-            for (int j = 0; j < board.length; j++)
-                s.append(String.format("%2d ", board[i][j]));
+        s.append(n + "\n");
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++)
+                s.append(String.format("%2d ", tileAt(i * n + j)));
             s.append("\n");
         }
         return s.toString();
@@ -34,55 +155,42 @@ public class Board {
         return n;
     }
 
-    private int getIndex(int row, int col) {
-        return row * n + col + 1;
-    }
-
     // number of tiles out of place
     public int hamming() {
-        int ham = 0;
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
-                if (getIndex(i, j) == n * n)
-                    break;
-                if (board[i][j] != getIndex(i, j))
-                    ham++;
-            }
-        }
-        return ham;
+        return hamming;
     }
 
     // sum of Manhattan distances between tiles and goal
     public int manhattan() {
-        int manh = 0;
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
-                if (board[i][j] == 0) {
-                    continue;
-                }
-                int row = (board[i][j] - 1) / n;
-                int col = (board[i][j] - 1) % n;
-                manh += Math.abs(row - i) + Math.abs(col - j);
-            }
-        }
-        return manh;
+        return manhattan;
     }
 
     // is this board the goal board?
     public boolean isGoal() {
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
-                if (board[i][j] == 0) {
-                    continue;
-                }
-                int row = (board[i][j] - 1) / n;
-                int col = (board[i][j] - 1) % n;
-                if (i != row || j != col) {
-                    return false;
-                }
-            }
+        return manhattan == 0;
+    }
+
+    // can this board reach the goal? counts inversions with a Fenwick tree
+    // over the tile values, O(n^2 log n), then applies the parity rule
+    public boolean isSolvable() {
+        int size = n * n;
+        int[] fenwick = new int[size];
+        long inversions = 0;
+        // 从右往左扫描，统计每个tile右边有多少个比它小的tile
+        for (int i = size - 1; i >= 0; i--) {
+            int t = tileAt(i);
+            if (t == 0)
+                continue;
+            for (int k = t - 1; k > 0; k -= k & -k)
+                inversions += fenwick[k];
+            for (int k = t; k < size; k += k & -k)
+                fenwick[k]++;
         }
-        return true;
+        // odd n: every move keeps the inversion parity;
+        // even n: a vertical move flips it and also changes the blank's row
+        if (n % 2 == 1)
+            return inversions % 2 == 0;
+        return (inversions + blank / n) % 2 == 1;
     }
 
     // does this board equal y?
@@ -94,70 +202,66 @@ public class Board {
         if (y.getClass() != this.getClass())
             return false;
         Board yy = (Board) y;
-        // 在Board类中，可以访问到各个Board的实例变量
-        return Arrays.deepEquals(board, yy.board);
+        if (n != yy.n || zobrist != yy.zobrist || blank != yy.blank)
+            return false;
+        // n <= 4 的棋盘整个编码在一个long里，比较一次即可
+        if (tiles == null)
+            return packed == yy.packed;
+        return Arrays.equals(tiles, yy.tiles);
     }
 
-    private void swap(int row1, int col1, int row2, int col2) {
-        int temp = board[row1][col1];
-        board[row1][col1] = board[row2][col2];
-        board[row2][col2] = temp;
+    public int hashCode() {
+        return (int) (zobrist ^ (zobrist >>> 32));
     }
 
     // all neighboring boards
     public Iterable<Board> neighbors() {
-        ArrayList<Board> a = new ArrayList<>();
-        int col0 = -1, row0 = -1;
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
-                if (board[i][j] == 0) {
-                    row0 = i;
-                    col0 = j;
-                    break;
-                }
-            }
-        }
+        ArrayList<Board> a = new ArrayList<>(4);
+        int row0 = blank / n, col0 = blank % n;
         // top neighbor
-        if (row0 - 1 >= 0) {
-            Board top = new Board(board);
-            top.swap(row0 - 1, col0, row0, col0);
-            a.add(top);
-        }
+        if (row0 - 1 >= 0)
+            a.add(new Board(this, blank, blank - n));
         // bottom neighbor
-        if (row0 + 1 <= n - 1) {
-            Board bottom = new Board(board);
-            bottom.swap(row0 + 1, col0, row0, col0);
-            a.add(bottom);
-        }
+        if (row0 + 1 <= n - 1)
+            a.add(new Board(this, blank, blank + n));
         // left neighbor
-        if (col0 - 1 >= 0) {
-            Board left = new Board(board);
-            left.swap(row0, col0 - 1, row0, col0);
-            a.add(left);
-        }
+        if (col0 - 1 >= 0)
+            a.add(new Board(this, blank, blank - 1));
         // right neighbor
-        if (col0 + 1 <= n - 1) {
-            Board right = new Board(board);
-            right.swap(row0, col0 + 1, row0, col0);
-            a.add(right);
-        }
+        if (col0 + 1 <= n - 1)
+            a.add(new Board(this, blank, blank + 1));
         return a;
     }
 
+    // the neighbor obtained by sliding the tile on square to into the blank;
+    // to must be next to the blank
+    Board moveBlank(int to) {
+        return new Board(this, blank, to);
+    }
+
+    // square the blank moves to in direction dir, or -1 if that leaves the board
+    int target(int dir) {
+        switch (dir) {
+            case UP:    return blank >= n ? blank - n : -1;
+            case DOWN:  return blank < n * (n - 1) ? blank + n : -1;
+            case LEFT:  return blank % n > 0 ? blank - 1 : -1;
+            case RIGHT: return blank % n < n - 1 ? blank + 1 : -1;
+            default:    throw new IllegalArgumentException();
+        }
+    }
+
+    // row-major index of the blank square
+    int blankSquare() {
+        return blank;
+    }
+
     // a board that is obtained by exchanging any pair of tiles
     public Board twin() {
-        int a = 1;
-        while (board[(a - 1) / n][(a - 1) % n] == 0 && a < n * n) {
-            a++;
-        }
+        int a = blank == 0 ? 1 : 0;
         int b = a + 1;
-        while (board[(b - 1) / n][(b - 1) % n] == 0 && b < n * n) {
+        if (b == blank)
             b++;
-        }
-        int rowa = (a - 1) / n, cola = (a - 1) % n, rowb = (b - 1) / n, colb = (b - 1) % n;
-        Board twin = new Board(board);
-        twin.swap(rowa, cola, rowb, colb);
-        return twin;
+        return new Board(this, a, b);
     }
 
     // unit testing (not graded)
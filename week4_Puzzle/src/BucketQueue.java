@@ -0,0 +1,85 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+// priority queue of int ids keyed by small non-negative ints f and g: delMin returns an
+// id with the smallest f, among those one with the largest g, and among those the one
+// inserted last. Ids sit in one int stack per (f, g), so insert and delMin are O(1)
+// apart from skipping empty buckets, and nothing is boxed.
+class BucketQueue {
+    private int[][][] items = new int[0][][];   // items[f][g] = stack of ids
+    private int[][] counts = new int[0][];      // counts[f][g] = ids on that stack
+    private int[] top = new int[0];             // top[f] >= largest g in use for f
+    private int minF = Integer.MAX_VALUE;       // no id has a smaller f
+    private int size;
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void insert(int id, int f, int g) {
+        if (f < 0 || g < 0)
+            throw new IllegalArgumentException();
+        if (f >= items.length) {
+            int len = Math.max(f + 1, 2 * items.length);
+            items = Arrays.copyOf(items, len);
+            counts = Arrays.copyOf(counts, len);
+            top = Arrays.copyOf(top, len);
+        }
+        if (items[f] == null || g >= items[f].length) {
+            int len = Math.max(g + 1, items[f] == null ? 8 : 2 * items[f].length);
+            items[f] = items[f] == null ? new int[len][] : Arrays.copyOf(items[f], len);
+            counts[f] = counts[f] == null ? new int[len] : Arrays.copyOf(counts[f], len);
+        }
+        int[] stack = items[f][g];
+        int c = counts[f][g];
+        if (stack == null)
+            stack = items[f][g] = new int[16];
+        else if (c == stack.length)
+            stack = items[f][g] = Arrays.copyOf(stack, 2 * c);
+        stack[c] = id;
+        counts[f][g] = c + 1;
+        if (g > top[f])
+            top[f] = g;
+        if (f < minF)
+            minF = f;
+        size++;
+    }
+
+    // smallest f of any id in the queue
+    int minKey() {
+        if (isEmpty())
+            throw new NoSuchElementException();
+        skipEmpty();
+        return minF;
+    }
+
+    int delMin() {
+        if (isEmpty())
+            throw new NoSuchElementException();
+        skipEmpty();
+        int g = top[minF];
+        int c = --counts[minF][g];
+        size--;
+        return items[minF][g][c];
+    }
+
+    // move minF and top[minF] to a non-empty bucket
+    private void skipEmpty() {
+        while (true) {
+            int[] cs = counts[minF];
+            if (cs != null) {
+                int g = top[minF];
+                while (g > 0 && cs[g] == 0)
+                    g--;
+                top[minF] = g;
+                if (cs[g] > 0)
+                    return;
+            }
+            minF++;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+// lets another thread stop a running Solver, see SolverOptions.cancellation;
+// one token can be shared by any number of searches
+public class CancellationToken {
+    private volatile boolean cancelled;
+
+    // ask every search using this token to stop as soon as it can
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,117 @@
+// Board keys (see Board.key()) of the boards already expanded, each with the moves
+// it was expanded at, stored in a linear-probing table of primitive arrays. For
+// n > 4 keys are zobrist hashes, and two boards with the same key are taken for
+// one; at 64 bits that is vanishingly unlikely within any search that fits in memory
+class ClosedSet {
+    private static final long EMPTY = 0;       // key 0 is tracked in zeroMoves instead
+    private static final int ABSENT = -1;
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final int SLOT_BYTES = Long.BYTES + Integer.BYTES;
+
+    private long[] keys;
+    private int[] moves;
+    private int zeroMoves = ABSENT;
+    private int size;
+    private final int maxCapacity;             // largest table that fits in the memory cap
+    private boolean full;
+
+    // a set whose table never grows beyond maxBytes
+    ClosedSet(long maxBytes) {
+        if (maxBytes < (long) INITIAL_CAPACITY * SLOT_BYTES)
+            throw new IllegalArgumentException("closed set needs at least "
+                    + INITIAL_CAPACITY * SLOT_BYTES + " bytes");
+        long cap = Long.highestOneBit(maxBytes / SLOT_BYTES);
+        maxCapacity = (int) Math.min(cap, 1 << 30);
+        keys = new long[INITIAL_CAPACITY];
+        moves = new int[INITIAL_CAPACITY];
+    }
+
+    // number of keys in the set
+    int size() {
+        return size;
+    }
+
+    // has the set stopped accepting keys because it reached its memory cap?
+    boolean isFull() {
+        return full;
+    }
+
+    // the fewest moves key was expanded at, or -1 if it was not
+    private int moves(long key) {
+        if (key == EMPTY)
+            return zeroMoves;
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key)
+                return moves[i];
+        }
+        return ABSENT;
+    }
+
+    // has key been expanded at g moves or fewer? Only then can a board reached in
+    // g moves be skipped: with a heuristic that is admissible but not consistent, a
+    // board can be expanded before its shortest path is known, and must be reopened
+    boolean covers(long key, int g) {
+        int m = moves(key);
+        return m >= 0 && m <= g;
+    }
+
+    // record that key was expanded at g moves; once the cap is reached new keys
+    // are dropped, which only costs pruning, never correctness
+    void add(long key, int g) {
+        if (g < 0)
+            throw new IllegalArgumentException();
+        if (key == EMPTY) {
+            if (zeroMoves == ABSENT)
+                size++;
+            zeroMoves = zeroMoves == ABSENT ? g : Math.min(zeroMoves, g);
+            return;
+        }
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                moves[i] = Math.min(moves[i], g);
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        if (4 * (size + 1) > 3 * keys.length) {
+            if (keys.length >= maxCapacity) {
+                full = true;
+                return;
+            }
+            resize(2 * keys.length);
+            mask = keys.length - 1;
+            i = mix(key) & mask;
+            while (keys[i] != EMPTY)
+                i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        moves[i] = g;
+        size++;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldMoves = moves;
+        keys = new long[capacity];
+        moves = new int[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == EMPTY)
+                continue;
+            int i = mix(oldKeys[j]) & mask;
+            while (keys[i] != EMPTY)
+                i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            moves[i] = oldMoves[j];
+        }
+    }
+
+    // packed boards differ only in a few low bits, so spread them before masking
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,14 @@
+// admissible estimate of the number of moves needed to solve a board
+public interface Heuristic {
+    // lower bound for the n-by-n board with tiles[i] on square i, in row-major order
+    int estimate(int[] tiles, int n);
+
+    // lower bound for board
+    default int estimate(Board board) {
+        int n = board.dimension();
+        int[] tiles = new int[n * n];
+        for (int i = 0; i < n * n; i++)
+            tiles[i] = board.tileAt(i);
+        return estimate(tiles, n);
+    }
+}
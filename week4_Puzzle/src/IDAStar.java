@@ -0,0 +1,242 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// iterative-deepening A* on a single mutable copy of the board:
+// memory is O(solution length) and the search loop allocates nothing
+class IDAStar {
+    static final int FOUND = -1;
+
+    private final int n;
+    private final int[] tiles;      // tiles[i] = tile on square i, row-major
+    private int blank;              // square of the blank
+    private int manhattan;          // Manhattan distance of the current board
+    private int h;                  // heuristic value of the current board
+    private final Heuristic heuristic;  // null when h is the Manhattan distance
+    private int[] path;             // path[g] = square the blank moved to at depth g
+    private int played;             // moves made by play(), searches start below them
+    private int previous = -1;      // square the blank left on the last played move
+    private int length;             // number of moves in the solution, once found
+    private final boolean solvable;
+    private AtomicBoolean stop;     // set by another thread to abandon a search
+    private final SearchStats stats;    // null if not collecting
+    private final SearchBudget budget;  // null if unlimited
+    private int generated;          // nodes generated since the budget was last checked
+    private boolean aborted;        // the budget ran out
+    private int bestH;              // smallest heuristic value seen
+    private int[] best;             // the moves to a board with that value
+
+    IDAStar(Board initial, Heuristic heuristic) {
+        this(initial, heuristic, null, null);
+    }
+
+    IDAStar(Board initial, Heuristic heuristic, SearchStats stats, SearchBudget budget) {
+        n = initial.dimension();
+        tiles = new int[n * n];
+        for (int i = 0; i < n * n; i++) {
+            tiles[i] = initial.tileAt(i);
+            if (tiles[i] == 0)
+                blank = i;
+        }
+        manhattan = initial.manhattan();
+        // Manhattan距离可以随每一步增量更新，其他启发函数每步重新计算
+        this.heuristic = heuristic instanceof ManhattanHeuristic ? null : heuristic;
+        h = this.heuristic == null ? manhattan : this.heuristic.estimate(tiles, n);
+        solvable = initial.isSolvable();
+        this.stats = stats;
+        this.budget = budget;
+        bestH = h;
+        best = new int[0];
+    }
+
+    // an independent copy of that search, including its played moves
+    IDAStar(IDAStar that) {
+        this(that, null);
+    }
+
+    // a copy of that search counting into stats, which must not be shared between
+    // threads; the budget is shared
+    IDAStar(IDAStar that, SearchStats stats) {
+        n = that.n;
+        tiles = that.tiles.clone();
+        blank = that.blank;
+        manhattan = that.manhattan;
+        h = that.h;
+        heuristic = that.heuristic;
+        path = that.path == null ? null : that.path.clone();
+        played = that.played;
+        previous = that.previous;
+        solvable = that.solvable;
+        this.stats = stats;
+        budget = that.budget;
+        bestH = that.bestH;
+        best = that.best;
+    }
+
+    // squares the blank moves to along a shortest solution, or null if the board
+    // cannot be solved; best() if the budget runs out first
+    int[] solve() {
+        if (!solvable)
+            return null;
+        int bound = h;
+        if (stats != null)
+            stats.searching(h);
+        while (true) {
+            if (stats != null)
+                stats.iteration();
+            int t = search(bound, null);
+            if (aborted)
+                return best();
+            if (t == FOUND) {
+                if (stats != null)
+                    stats.rebuilding();
+                return solution();
+            }
+            bound = t;
+        }
+    }
+
+    // squares the blank moves to on the way to the board with the smallest
+    // heuristic value seen by any search, the played moves included
+    int[] best() {
+        return best.clone();
+    }
+
+    // smallest heuristic value seen by any search
+    int bestEstimate() {
+        return bestH;
+    }
+
+    // make a move that every later search starts from
+    void play(int to) {
+        if (path == null || played == path.length)
+            path = Arrays.copyOf(path == null ? new int[0] : path, 2 * played + 8);
+        previous = blank;
+        move(to);
+        h = heuristic == null ? manhattan : heuristic.estimate(tiles, n);
+        path[played++] = to;
+        if (h < bestH) {
+            bestH = h;
+            best = Arrays.copyOf(path, played);
+        }
+    }
+
+    // one depth-first pass below the played moves; returns FOUND, the smallest f
+    // over bound, or Integer.MAX_VALUE if stop was set or the budget ran out
+    // before it finished. Running out of budget also sets stop.
+    int search(int bound, AtomicBoolean stop) {
+        this.stop = stop;
+        if (path == null || path.length < bound + 1)
+            path = Arrays.copyOf(path == null ? new int[0] : path, Math.max(bound + 1, played));
+        return search(played, bound, previous);
+    }
+
+    // the played moves followed by those of the solution found by the last search
+    int[] solution() {
+        return Arrays.copyOf(path, length);
+    }
+
+    boolean isSolvable() {
+        return solvable;
+    }
+
+    // is the board reached by the played moves the goal?
+    boolean isGoal() {
+        return manhattan == 0;
+    }
+
+    int dimension() {
+        return n;
+    }
+
+    // f = g + h of the board reached by the played moves
+    int f() {
+        return played + h;
+    }
+
+    int blank() {
+        return blank;
+    }
+
+    // square the blank left on the last played move, -1 if none
+    int previous() {
+        return previous;
+    }
+
+    // depth-first search below the current board, reached in g moves with the
+    // blank coming from square prev; returns FOUND or the smallest f over bound
+    private int search(int g, int bound, int prev) {
+        int f = g + h;
+        if (f > bound)
+            return f;
+        if (aborted || stop != null && stop.get())
+            return Integer.MAX_VALUE;
+        if (manhattan == 0) {
+            length = g;
+            return FOUND;
+        }
+        if (h < bestH) {
+            // 新的最小启发值很少出现，复制路径的开销可以忽略
+            bestH = h;
+            best = Arrays.copyOf(path, g);
+        }
+        if (stats != null)
+            stats.expand(h);
+        int min = Integer.MAX_VALUE;
+        int row = blank / n, col = blank % n;
+        for (int d = 0; d < 4; d++) {
+            int next;
+            if (d == 0 && row > 0)
+                next = blank - n;
+            else if (d == 1 && row < n - 1)
+                next = blank + n;
+            else if (d == 2 && col > 0)
+                next = blank - 1;
+            else if (d == 3 && col < n - 1)
+                next = blank + 1;
+            else
+                continue;
+            // 不走回头路
+            if (next == prev) {
+                if (stats != null)
+                    stats.duplicate();
+                continue;
+            }
+            int from = blank;
+            int saved = h;
+            move(next);
+            h = heuristic == null ? manhattan : heuristic.estimate(tiles, n);
+            if (stats != null)
+                stats.generate();
+            if (budget != null && ++generated == SearchBudget.CHECK_INTERVAL) {
+                generated = 0;
+                if (!budget.check(SearchBudget.CHECK_INTERVAL, 0)) {
+                    aborted = true;
+                    if (stop != null)
+                        stop.set(true);
+                }
+            }
+            path[g] = next;
+            int t = search(g + 1, bound, from);
+            if (t == FOUND)
+                return FOUND;
+            move(from);
+            h = saved;
+            if (t < min)
+                min = t;
+        }
+        return min;
+    }
+
+    // slide the tile on square to into the blank, updating manhattan
+    private void move(int to) {
+        int t = tiles[to];
+        manhattan += distance(t, blank) - distance(t, to);
+        tiles[blank] = t;
+        tiles[to] = 0;
+        blank = to;
+    }
+
+    private int distance(int t, int i) {
+        return Math.abs((t - 1) / n - i / n) + Math.abs((t - 1) % n - i % n);
+    }
+}
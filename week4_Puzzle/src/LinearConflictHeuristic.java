@@ -0,0 +1,52 @@
+// Manhattan distance plus two moves for every tile that has to leave its goal
+// row or column to let another tile of that line pass
+public class LinearConflictHeuristic implements Heuristic {
+    public int estimate(int[] tiles, int n) {
+        int manh = 0;
+        int removed = 0;
+        int[] line = new int[n];
+        int[] tails = new int[n];
+        for (int row = 0; row < n; row++) {
+            int k = 0;
+            for (int col = 0; col < n; col++) {
+                int t = tiles[row * n + col];
+                if (t == 0)
+                    continue;
+                manh += Math.abs((t - 1) / n - row) + Math.abs((t - 1) % n - col);
+                if ((t - 1) / n == row)
+                    line[k++] = (t - 1) % n;
+            }
+            removed += k - longestIncreasing(line, k, tails);
+        }
+        for (int col = 0; col < n; col++) {
+            int k = 0;
+            for (int row = 0; row < n; row++) {
+                int t = tiles[row * n + col];
+                if (t != 0 && (t - 1) % n == col)
+                    line[k++] = (t - 1) / n;
+            }
+            removed += k - longestIncreasing(line, k, tails);
+        }
+        return manh + 2 * removed;
+    }
+
+    // length of the longest increasing subsequence of a[0..k): the tiles of a line
+    // that can stay in it, all the others must step out and back (patience sorting)
+    private static int longestIncreasing(int[] a, int k, int[] tails) {
+        int len = 0;
+        for (int i = 0; i < k; i++) {
+            int lo = 0, hi = len;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (tails[mid] < a[i])
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            tails[lo] = a[i];
+            if (lo == len)
+                len++;
+        }
+        return len;
+    }
+}
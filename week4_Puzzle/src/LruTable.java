@@ -0,0 +1,177 @@
+import java.util.Arrays;
+
+// map from Board keys (see Board.key()) to non-negative ints holding at most capacity
+// keys, dropping the least recently used one to make room. Entries live in slots of
+// primitive arrays, linked from the most to the least recently used; a linear-probing
+// index of slot numbers finds them. About 30 bytes per key, allocated as it fills.
+class LruTable {
+    private static final int ABSENT = -1;
+    private static final int NONE = -1;
+
+    private final int capacity;
+    private long[] keys = new long[16];
+    private int[] values = new int[16];
+    private int[] newer = new int[16];      // the slot used next after each one, or NONE
+    private int[] older = new int[16];      // the slot used last before each one, or NONE
+    private int[] index = new int[32];      // slot + 1 of each key at its probe position, 0 if empty
+    private int size;
+    private int newest = NONE, oldest = NONE;
+    private long evictions;
+
+    LruTable(int capacity) {
+        if (capacity < 1 || capacity > 1 << 29)
+            throw new IllegalArgumentException();
+        this.capacity = capacity;
+    }
+
+    // number of keys in the table
+    int size() {
+        return size;
+    }
+
+    // keys dropped to make room for newer ones
+    long evictions() {
+        return evictions;
+    }
+
+    // the value for key, or -1 if there is none; key becomes the most recently used
+    int get(long key) {
+        int i = find(key);
+        if (index[i] == 0)
+            return ABSENT;
+        int s = index[i] - 1;
+        touch(s);
+        return values[s];
+    }
+
+    // set the value for key, which becomes the most recently used; returns the old
+    // value, or -1 if there was none
+    int put(long key, int value) {
+        if (value < 0)
+            throw new IllegalArgumentException();
+        int i = find(key);
+        if (index[i] != 0) {
+            int s = index[i] - 1;
+            int old = values[s];
+            values[s] = value;
+            touch(s);
+            return old;
+        }
+        int s;
+        if (size == capacity) {
+            // 淘汰最久没用过的key，复用它的槽位
+            s = oldest;
+            unlink(s);
+            remove(find(keys[s]));
+            evictions++;
+            i = find(key);
+        }
+        else {
+            if (size == keys.length)
+                grow(Math.min(2 * keys.length, capacity));
+            if (2 * (size + 1) > index.length)
+                rehash(2 * index.length);
+            s = size++;
+            i = find(key);
+        }
+        keys[s] = key;
+        values[s] = value;
+        index[i] = s + 1;
+        link(s);
+        return ABSENT;
+    }
+
+    // the least recently used slot, or -1 if the table is empty
+    int oldest() {
+        return oldest;
+    }
+
+    // the slot used next after slot s, or -1 if s is the most recently used
+    int newer(int s) {
+        return newer[s];
+    }
+
+    long key(int s) {
+        return keys[s];
+    }
+
+    int value(int s) {
+        return values[s];
+    }
+
+    // the probe position holding key, or the empty one where it would go
+    private int find(long key) {
+        int mask = index.length - 1;
+        int i = mix(key) & mask;
+        while (index[i] != 0 && keys[index[i] - 1] != key)
+            i = (i + 1) & mask;
+        return i;
+    }
+
+    // empty probe position i, moving back the keys after it that would no longer be found
+    private void remove(int i) {
+        int mask = index.length - 1;
+        for (int j = (i + 1) & mask; index[j] != 0; j = (j + 1) & mask) {
+            int home = mix(keys[index[j] - 1]) & mask;
+            // j处的key可以挪到i，当且仅当它的起始位置不在(i, j]这一段里（循环意义下）
+            if (i <= j ? home <= i || home > j : home <= i && home > j) {
+                index[i] = index[j];
+                i = j;
+            }
+        }
+        index[i] = 0;
+    }
+
+    private void touch(int s) {
+        if (s != newest) {
+            unlink(s);
+            link(s);
+        }
+    }
+
+    // make s the most recently used slot
+    private void link(int s) {
+        older[s] = newest;
+        newer[s] = NONE;
+        if (newest != NONE)
+            newer[newest] = s;
+        newest = s;
+        if (oldest == NONE)
+            oldest = s;
+    }
+
+    private void unlink(int s) {
+        if (older[s] != NONE)
+            newer[older[s]] = newer[s];
+        else
+            oldest = newer[s];
+        if (newer[s] != NONE)
+            older[newer[s]] = older[s];
+        else
+            newest = older[s];
+    }
+
+    private void grow(int slots) {
+        keys = Arrays.copyOf(keys, slots);
+        values = Arrays.copyOf(values, slots);
+        newer = Arrays.copyOf(newer, slots);
+        older = Arrays.copyOf(older, slots);
+    }
+
+    private void rehash(int capacity) {
+        index = new int[capacity];
+        int mask = capacity - 1;
+        for (int s = 0; s < size; s++) {
+            int i = mix(keys[s]) & mask;
+            while (index[i] != 0)
+                i = (i + 1) & mask;
+            index[i] = s + 1;
+        }
+    }
+
+    // packed boards differ only in a few low bits, so spread them before masking
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,17 @@
+// sum of Manhattan distances between tiles and goal, the default heuristic
+public class ManhattanHeuristic implements Heuristic {
+    public int estimate(int[] tiles, int n) {
+        int manh = 0;
+        for (int i = 0; i < n * n; i++) {
+            int t = tiles[i];
+            if (t != 0)
+                manh += Math.abs((t - 1) / n - i / n) + Math.abs((t - 1) % n - i % n);
+        }
+        return manh;
+    }
+
+    // boards keep their Manhattan distance up to date, so this is a field read
+    public int estimate(Board board) {
+        return board.manhattan();
+    }
+}
@@ -0,0 +1,69 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// a solution kept as the initial board plus one 2-bit direction per move of the
+// blank (see Board.UP etc.); the boards are replayed one at a time when iterated
+class MovePath implements Iterable<Board> {
+    private final Board initial;
+    private final long[] codes;   // move i in bits [2i mod 64, 2i mod 64 + 2) of codes[i / 32]
+    private final int length;
+
+    // the path making the moves directions[0..length) from initial
+    MovePath(Board initial, int[] directions, int length) {
+        this.initial = initial;
+        this.length = length;
+        codes = new long[(length + 31) / 32];
+        for (int i = 0; i < length; i++)
+            codes[i >>> 5] |= (long) directions[i] << ((i & 31) << 1);
+    }
+
+    // the path moving the blank to each of squares in turn
+    static MovePath ofSquares(Board initial, int[] squares) {
+        int n = initial.dimension();
+        int[] directions = new int[squares.length];
+        int blank = initial.blankSquare();
+        for (int i = 0; i < squares.length; i++) {
+            directions[i] = direction(blank, squares[i], n);
+            blank = squares[i];
+        }
+        return new MovePath(initial, directions, squares.length);
+    }
+
+    // direction of the move taking the blank from square from to square to
+    static int direction(int from, int to, int n) {
+        if (to == from - n) return Board.UP;
+        if (to == from + n) return Board.DOWN;
+        if (to == from - 1) return Board.LEFT;
+        if (to == from + 1) return Board.RIGHT;
+        throw new IllegalArgumentException("squares " + from + " and " + to + " are not adjacent");
+    }
+
+    // number of moves
+    int length() {
+        return length;
+    }
+
+    // direction of move i
+    int direction(int i) {
+        return (int) (codes[i >>> 5] >>> ((i & 31) << 1)) & 3;
+    }
+
+    public Iterator<Board> iterator() {
+        return new Iterator<Board>() {
+            private Board board;
+            private int next;      // index of the next board, 0 is the initial one
+
+            public boolean hasNext() {
+                return next <= length;
+            }
+
+            public Board next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                board = next == 0 ? initial : board.moveBlank(board.target(direction(next - 1)));
+                next++;
+                return board;
+            }
+        };
+    }
+}
@@ -0,0 +1,165 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// IDA* that expands the top levels of every iteration breadth-first and then
+// searches the subtrees below them in parallel. A solution found within an
+// iteration's bound is optimal (no earlier, smaller bound had one), so the
+// first subtree to find one stops all the others.
+class ParallelIDAStar {
+    private static final int SUBTREES_PER_THREAD = 32;
+
+    private final IDAStar root;
+    private final int threads;
+    private final SearchStats stats;    // null if not collecting; each subtree counts
+                                        // into its own and they are added up per iteration
+    private final SearchBudget budget;  // null if unlimited
+    private IDAStar best;               // the search that saw the smallest heuristic value
+
+    ParallelIDAStar(Board initial, Heuristic heuristic, int threads) {
+        this(initial, heuristic, threads, null, null);
+    }
+
+    ParallelIDAStar(Board initial, Heuristic heuristic, int threads, SearchStats stats,
+                    SearchBudget budget) {
+        if (threads < 1)
+            throw new IllegalArgumentException();
+        root = new IDAStar(initial, heuristic, null, budget);
+        this.threads = threads;
+        this.stats = stats;
+        this.budget = budget;
+        best = root;
+    }
+
+    // squares the blank moves to along a shortest solution, or null if the board
+    // cannot be solved; if the budget runs out first, the moves to the board with
+    // the smallest heuristic value seen
+    int[] solve() {
+        if (!root.isSolvable())
+            return null;
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            int bound = root.f();
+            if (stats != null)
+                stats.searching(bound);
+            while (true) {
+                AtomicInteger next = new AtomicInteger(Integer.MAX_VALUE);
+                if (stats != null)
+                    stats.iteration();
+                int[] found = search(pool, bound, next);
+                if (stats != null)
+                    stats.report();
+                if (found != null) {
+                    // 别的线程可能同时用完了预算，但找到的解仍然是最优的
+                    if (budget != null)
+                        budget.completed();
+                    if (stats != null)
+                        stats.rebuilding();
+                    return found;
+                }
+                if (budget != null && budget.isExhausted())
+                    return best.best();
+                bound = next.get();
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    // one iteration; returns the solution or null, leaving the next bound in next
+    private int[] search(ForkJoinPool pool, int bound, AtomicInteger next) {
+        // 先逐层展开树的顶部，直到子树足够多，可以均匀地分给各个线程
+        List<int[]> frontier = new ArrayList<>();
+        frontier.add(new int[0]);
+        while (frontier.size() < threads * SUBTREES_PER_THREAD) {
+            List<int[]> deeper = new ArrayList<>();
+            for (int[] prefix : frontier) {
+                IDAStar node = replay(prefix);
+                if (node.isGoal())
+                    return prefix;
+                improve(node);
+                if (budget != null && !budget.check(1, 0))
+                    return null;
+                if (stats != null)
+                    stats.expand(node.f() - prefix.length);
+                int n = node.dimension(), blank = node.blank();
+                int[] squares = { blank - n, blank + n, blank - 1, blank + 1 };
+                boolean[] legal = { blank >= n, blank < n * (n - 1), blank % n > 0, blank % n < n - 1 };
+                for (int d = 0; d < 4; d++) {
+                    if (!legal[d])
+                        continue;
+                    if (squares[d] == node.previous()) {
+                        if (stats != null)
+                            stats.duplicate();
+                        continue;
+                    }
+                    IDAStar child = new IDAStar(node);
+                    child.play(squares[d]);
+                    if (stats != null)
+                        stats.generate();
+                    if (child.f() > bound) {
+                        next.accumulateAndGet(child.f(), Math::min);
+                        continue;
+                    }
+                    int[] longer = Arrays.copyOf(prefix, prefix.length + 1);
+                    longer[prefix.length] = squares[d];
+                    deeper.add(longer);
+                }
+            }
+            frontier = deeper;
+            if (frontier.isEmpty())
+                return null;
+        }
+
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<int[]> solution = new AtomicReference<>();
+        List<Callable<Void>> tasks = new ArrayList<>(frontier.size());
+        List<SearchStats> counts = new ArrayList<>(frontier.size());
+        IDAStar[] searched = new IDAStar[frontier.size()];
+        for (int[] prefix : frontier) {
+            SearchStats count = stats == null ? null : new SearchStats(null, 0);
+            if (count != null)
+                counts.add(count);
+            int task = tasks.size();
+            tasks.add(() -> {
+                if (stop.get())
+                    return null;
+                IDAStar node = new IDAStar(replay(prefix), count);
+                searched[task] = node;
+                int t = node.search(bound, stop);
+                if (t == IDAStar.FOUND) {
+                    solution.compareAndSet(null, node.solution());
+                    stop.set(true);
+                }
+                else
+                    next.accumulateAndGet(t, Math::min);
+                return null;
+            });
+        }
+        pool.invokeAll(tasks);
+        for (SearchStats count : counts)
+            stats.add(count);
+        for (IDAStar node : searched)
+            if (node != null)
+                improve(node);
+        return solution.get();
+    }
+
+    private void improve(IDAStar node) {
+        if (node.bestEstimate() < best.bestEstimate())
+            best = node;
+    }
+
+    private IDAStar replay(int[] prefix) {
+        IDAStar node = new IDAStar(root);
+        for (int to : prefix)
+            node.play(to);
+        return node;
+    }
+}
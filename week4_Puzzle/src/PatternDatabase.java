@@ -0,0 +1,365 @@
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// disjoint additive pattern databases: the tiles are split into groups, and for
+// every placement of a group's tiles a table holds the fewest moves of those
+// tiles (moves of other tiles are free) that bring them home; the sum over the
+// groups is an admissible heuristic. It is not consistent: an entry is the fewest
+// moves over every region the blank may be in, so a single move can change it by
+// several, and a search that prunes expanded boards must reopen them (see ClosedSet)
+public class PatternDatabase implements Heuristic {
+    // groups for the 15-puzzle
+    public static final int[][] PARTITION_663 = {
+            { 1, 5, 6, 9, 10, 13 }, { 7, 8, 11, 12, 14, 15 }, { 2, 3, 4 }
+    };
+    public static final int[][] PARTITION_78 = {
+            { 1, 5, 6, 9, 10, 13, 14 }, { 2, 3, 4, 7, 8, 11, 12, 15 }
+    };
+
+    private static final int MAGIC = 0x50444231;   // "PDB1"
+    private static final int UNSEEN = 0xFF;
+    private static final int BITS_PER_SQUARE = 6;  // positions packed in a long, n * n <= 64
+
+    private final int n;
+    private final int[][] groups;
+    private final ByteBuffer[] tables;   // tables[g].get(rank) = moves for group g
+    private final int[][] factor;        // factor[g][s] = weight of slot s in a rank
+    private final int[] groupOf;         // groupOf[t] = group of tile t, -1 if none
+
+    private PatternDatabase(int n, int[][] groups, ByteBuffer[] tables) {
+        this.n = n;
+        this.groups = groups;
+        this.tables = tables;
+        factor = new int[groups.length][];
+        for (int g = 0; g < groups.length; g++)
+            factor[g] = factors(n * n, groups[g].length);
+        groupOf = new int[n * n];
+        Arrays.fill(groupOf, -1);
+        for (int g = 0; g < groups.length; g++)
+            for (int t : groups[g])
+                groupOf[t] = g;
+    }
+
+    // build the tables for an n-by-n puzzle by breadth-first search from the goal
+    public static PatternDatabase generate(int n, int[][] groups) {
+        int[][] copy = validate(n, groups);
+        ByteBuffer[] tables = new ByteBuffer[copy.length];
+        for (int g = 0; g < copy.length; g++)
+            tables[g] = ByteBuffer.wrap(search(n, copy[g]));
+        return new PatternDatabase(n, copy, tables);
+    }
+
+    // open tables written by save(); they are memory-mapped, not read into the heap
+    public static PatternDatabase load(String filename) throws IOException {
+        try (FileChannel ch = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE)
+                throw new IOException(filename + ": pattern database too large to map");
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            if (buf.remaining() < 12 || buf.getInt() != MAGIC)
+                throw new IOException(filename + ": not a pattern database");
+            int n = buf.getInt();
+            int[][] groups = new int[buf.getInt()][];
+            for (int g = 0; g < groups.length; g++) {
+                groups[g] = new int[buf.getInt()];
+                for (int s = 0; s < groups[g].length; s++)
+                    groups[g][s] = buf.getInt();
+            }
+            try {
+                groups = validate(n, groups);
+            }
+            catch (IllegalArgumentException e) {
+                throw new IOException(filename + ": " + e.getMessage());
+            }
+            ByteBuffer[] tables = new ByteBuffer[groups.length];
+            int offset = buf.position();
+            for (int g = 0; g < groups.length; g++) {
+                int size = size(n * n, groups[g].length);
+                if (offset + (long) size > buf.limit())
+                    throw new IOException(filename + ": truncated");
+                tables[g] = buf.slice(offset, size);
+                offset += size;
+            }
+            return new PatternDatabase(n, groups, tables);
+        }
+    }
+
+    // write the tables to a file that load() can map
+    public void save(String filename) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(filename)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(n);
+            out.writeInt(groups.length);
+            for (int[] group : groups) {
+                out.writeInt(group.length);
+                for (int t : group)
+                    out.writeInt(t);
+            }
+            byte[] chunk = new byte[1 << 16];
+            for (ByteBuffer table : tables) {
+                ByteBuffer b = table.duplicate();
+                b.clear();
+                while (b.hasRemaining()) {
+                    int len = Math.min(chunk.length, b.remaining());
+                    b.get(chunk, 0, len);
+                    out.write(chunk, 0, len);
+                }
+            }
+        }
+    }
+
+    // board dimension n the tables were built for
+    public int dimension() {
+        return n;
+    }
+
+    public int estimate(int[] tiles, int n) {
+        if (n != this.n)
+            throw new IllegalArgumentException("pattern database is for " + this.n + "-by-" + this.n);
+        int sum = 0;
+        for (int g = 0; g < groups.length; g++) {
+            // 依次记下该组每个tile所在的格子，打包进一个long，避免分配数组
+            long positions = 0;
+            for (int s = 0; s < groups[g].length; s++)
+                for (int i = 0; i < tiles.length; i++)
+                    if (tiles[i] == groups[g][s]) {
+                        positions |= (long) i << (BITS_PER_SQUARE * s);
+                        break;
+                    }
+            sum += tables[g].get(rank(positions, factor[g])) & 0xFF;
+        }
+        return sum;
+    }
+
+    // sorted copy of groups after checking that they are disjoint sets of tiles
+    // and that every table can be indexed by an int
+    private static int[][] validate(int n, int[][] groups) {
+        if (n < 2 || n * n > 64 || groups == null || groups.length == 0)
+            throw new IllegalArgumentException("bad dimension or groups");
+        boolean[] seen = new boolean[n * n];
+        int[][] copy = new int[groups.length][];
+        for (int g = 0; g < groups.length; g++) {
+            if (groups[g] == null || groups[g].length == 0 || groups[g].length > 64 / BITS_PER_SQUARE)
+                throw new IllegalArgumentException("group " + g + " must have 1 to "
+                        + 64 / BITS_PER_SQUARE + " tiles");
+            for (int t : groups[g]) {
+                if (t < 1 || t >= n * n || seen[t])
+                    throw new IllegalArgumentException("tile " + t + " is out of range or repeated");
+                seen[t] = true;
+            }
+            if (size(n * n, groups[g].length) < 0)
+                throw new IllegalArgumentException("group " + g + " is too large");
+            copy[g] = groups[g].clone();
+        }
+        return copy;
+    }
+
+    // number of placements of k tiles on m squares, or -1 if it overflows an int
+    private static int size(int m, int k) {
+        long size = 1;
+        for (int j = 0; j < k; j++)
+            size *= m - j;
+        return size > Integer.MAX_VALUE ? -1 : (int) size;
+    }
+
+    // factor[s] = number of placements of the tiles after slot s
+    private static int[] factors(int m, int k) {
+        int[] factor = new int[k];
+        factor[k - 1] = 1;
+        for (int s = k - 2; s >= 0; s--)
+            factor[s] = factor[s + 1] * (m - s - 1);
+        return factor;
+    }
+
+    // index of a placement: slot s contributes how many free squares precede its square
+    private static int rank(long positions, int[] factor) {
+        long used = 0;
+        int r = 0;
+        for (int s = 0; s < factor.length; s++) {
+            int p = (int) (positions >>> (BITS_PER_SQUARE * s)) & 63;
+            r += (p - Long.bitCount(used & ((1L << p) - 1))) * factor[s];
+            used |= 1L << p;
+        }
+        return r;
+    }
+
+    private static long unrank(int r, int[] factor) {
+        long used = 0;
+        long positions = 0;
+        for (int s = 0; s < factor.length; s++) {
+            int d = r / factor[s];
+            r %= factor[s];
+            // the d-th square not taken by an earlier slot
+            long free = ~used;
+            for (int j = 0; j < d; j++)
+                free &= free - 1;
+            int p = Long.numberOfTrailingZeros(free);
+            positions |= (long) p << (BITS_PER_SQUARE * s);
+            used |= 1L << p;
+        }
+        return positions;
+    }
+
+    // squares the blank can reach from start without moving a tile of the group
+    private static long region(int start, long occupied, long[] adjacent) {
+        long region = 1L << start;
+        long frontier = region;
+        while (frontier != 0) {
+            long grow = 0;
+            for (long f = frontier; f != 0; f &= f - 1)
+                grow |= adjacent[Long.numberOfTrailingZeros(f)];
+            frontier = grow & ~occupied & ~region;
+            region |= frontier;
+        }
+        return region;
+    }
+
+    // breadth-first search over (placement of the group, region of the blank);
+    // the blank moving inside its region is free, pushing a group tile costs one
+    private static byte[] search(int n, int[] group) {
+        int m = n * n, k = group.length;
+        int[] factor = factors(m, k);
+        byte[] table = new byte[size(m, k)];
+        Arrays.fill(table, (byte) UNSEEN);
+        long[] adjacent = new long[m];
+        for (int i = 0; i < m; i++) {
+            if (i / n > 0) adjacent[i] |= 1L << (i - n);
+            if (i / n < n - 1) adjacent[i] |= 1L << (i + n);
+            if (i % n > 0) adjacent[i] |= 1L << (i - 1);
+            if (i % n < n - 1) adjacent[i] |= 1L << (i + 1);
+        }
+        // a state is rank * m + (lowest square of the blank's region), 2 bits each:
+        // 0 unseen, 1 or 2 in the current or next level (they swap), 3 done
+        long states = (long) table.length * m;
+        long[] marks = new long[(int) ((states + 31) / 32)];
+
+        long goal = 0, occupied = 0;
+        for (int s = 0; s < k; s++) {
+            goal |= (long) (group[s] - 1) << (BITS_PER_SQUARE * s);
+            occupied |= 1L << (group[s] - 1);
+        }
+        int start = rank(goal, factor);
+        table[start] = 0;
+        setMark(marks, (long) start * m
+                + Long.numberOfTrailingZeros(region(m - 1, occupied, adjacent)), 1);
+
+        int[] slotAt = new int[m];
+        for (int depth = 0; ; depth++) {
+            int cur = 1 + depth % 2, next = 2 - depth % 2;
+            long pattern = cur == 1 ? 0x5555555555555555L : 0xAAAAAAAAAAAAAAAAL;
+            boolean grew = false;
+            for (int w = 0; w < marks.length; w++) {
+                // 找出这个word中标记为cur的所有state
+                long x = marks[w] ^ ~pattern;
+                long hits = x & (x >>> 1) & 0x5555555555555555L;
+                for (; hits != 0; hits &= hits - 1) {
+                    long state = (long) w * 32 + Long.numberOfTrailingZeros(hits) / 2;
+                    setMark(marks, state, 3);
+                    int r = (int) (state / m);
+                    long positions = unrank(r, factor);
+                    long occ = 0;
+                    for (int s = 0; s < k; s++) {
+                        int p = (int) (positions >>> (BITS_PER_SQUARE * s)) & 63;
+                        occ |= 1L << p;
+                        slotAt[p] = s;
+                    }
+                    long blankRegion = region((int) (state % m), occ, adjacent);
+                    for (long b = blankRegion; b != 0; b &= b - 1) {
+                        int to = Long.numberOfTrailingZeros(b);
+                        for (long q = adjacent[to] & occ; q != 0; q &= q - 1) {
+                            int from = Long.numberOfTrailingZeros(q);
+                            int shift = BITS_PER_SQUARE * slotAt[from];
+                            long moved = positions & ~(63L << shift) | (long) to << shift;
+                            long occMoved = occ ^ (1L << from) ^ (1L << to);
+                            int nr = rank(moved, factor);
+                            long ns = (long) nr * m
+                                    + Long.numberOfTrailingZeros(region(from, occMoved, adjacent));
+                            if (getMark(marks, ns) != 0)
+                                continue;
+                            setMark(marks, ns, next);
+                            grew = true;
+                            // 表项取所有空格区域中最先到达的深度，即最小值：可采纳，但不一致
+                            if ((table[nr] & 0xFF) == UNSEEN)
+                                table[nr] = (byte) (depth + 1);
+                        }
+                    }
+                }
+            }
+            if (!grew)
+                return table;
+        }
+    }
+
+    private static int getMark(long[] marks, long state) {
+        return (int) (marks[(int) (state >>> 5)] >>> ((state & 31) << 1)) & 3;
+    }
+
+    private static void setMark(long[] marks, long state, int mark) {
+        int w = (int) (state >>> 5);
+        int shift = (int) (state & 31) << 1;
+        marks[w] = marks[w] & ~(3L << shift) | (long) mark << shift;
+    }
+
+    // check the 3x3 tables against IDA*, then generate the 15-puzzle tables if
+    // asked: java PatternDatabase [663|78 filename]
+    public static void main(String[] args) throws IOException {
+        StdOut.println("A* with closed set wrong  " + checkClosedSet(10000));
+        if (args.length < 2)
+            return;
+        int[][] groups = "78".equals(args[0]) ? PARTITION_78 : PARTITION_663;
+        long start = System.currentTimeMillis();
+        PatternDatabase db = generate(4, groups);
+        db.save(args[1]);
+        StdOut.println("wrote " + args[1] + " in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    // number of the m random 3x3 boards on which A* with a closed set and the
+    // tables for {1..4} {5..8} finds a solution of another length than IDA* with
+    // them; as the tables are not consistent, A* must reopen boards to match
+    private static int checkClosedSet(int m) {
+        PatternDatabase db = generate(3, new int[][] { { 1, 2, 3, 4 }, { 5, 6, 7, 8 } });
+        SplittableRandom random = new SplittableRandom(1);
+        int wrong = 0;
+        for (int b = 0; b < m; b++) {
+            int[] p = { 0, 1, 2, 3, 4, 5, 6, 7, 8 };
+            for (int i = p.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int t = p[i];
+                p[i] = p[j];
+                p[j] = t;
+            }
+            // 交换两个非空格的tile会改变逆序数的奇偶性，把无解的排列变成有解的
+            if (!board(p).isSolvable()) {
+                int i = p[0] == 0 ? 1 : 0, j = p[2] == 0 ? 1 : 2;
+                int t = p[i];
+                p[i] = p[j];
+                p[j] = t;
+            }
+            Board board = board(p);
+            int closed = new Solver(board, new SolverOptions().heuristic(db).closedSet(1 << 20)).moves();
+            int ida = new Solver(board, new SolverOptions().algorithm(SolverOptions.Algorithm.IDA_STAR)
+                    .heuristic(db)).moves();
+            if (closed != ida)
+                wrong++;
+        }
+        return wrong;
+    }
+
+    private static Board board(int[] p) {
+        int[][] tiles = new int[3][3];
+        for (int i = 0; i < 9; i++)
+            tiles[i / 3][i % 3] = p[i];
+        return new Board(tiles);
+    }
+}
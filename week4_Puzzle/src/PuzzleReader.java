@@ -0,0 +1,67 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// reads puzzle files in the assignment's format (n, then the n * n tiles row by row),
+// reusing one byte buffer and one tile array across files; not thread-safe. The tiles
+// must be 0 to n * n - 1, each once: a board with a tile missing has no goal to reach
+class PuzzleReader {
+    private ByteBuffer buf = ByteBuffer.allocate(1 << 12);
+    private int[][] tiles = new int[0][];
+    private boolean[] seen = new boolean[0];   // tiles read so far from the current file
+
+    Board read(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file)) {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException(file + ": too large");
+            if (size > buf.capacity())
+                buf = ByteBuffer.allocate((int) size);
+            buf.clear();
+            while (buf.position() < size && ch.read(buf) >= 0) {
+                // keep reading until the whole file is in buf
+            }
+            buf.flip();
+        }
+        int n = nextInt(file);
+        if (n < 2 || n >= 128)
+            throw new IOException(file + ": bad dimension " + n);
+        if (tiles.length != n) {
+            tiles = new int[n][n];
+            seen = new boolean[n * n];
+        }
+        else
+            Arrays.fill(seen, false);
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++) {
+                int t = nextInt(file);
+                if (t < 0 || t >= n * n)
+                    throw new IOException(file + ": bad tile " + t);
+                if (seen[t])
+                    throw new IOException(file + ": duplicate tile " + t);
+                seen[t] = true;
+                tiles[i][j] = t;
+            }
+        return new Board(tiles);
+    }
+
+    private int nextInt(Path file) throws IOException {
+        while (buf.hasRemaining() && Character.isWhitespace(buf.get(buf.position())))
+            buf.get();
+        int value = 0, digits = 0;
+        while (buf.hasRemaining()) {
+            int c = buf.get(buf.position());
+            if (c < '0' || c > '9')
+                break;
+            buf.get();
+            value = value * 10 + (c - '0');
+            if (++digits > 9)
+                throw new IOException(file + ": number too long");
+        }
+        if (digits == 0)
+            throw new IOException(file + ": expected a number");
+        return value;
+    }
+}
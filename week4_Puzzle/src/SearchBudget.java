@@ -0,0 +1,63 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+// the limits of one search, shared by all threads working on it. Engines call
+// check every CHECK_INTERVAL nodes or so with what they stored since the last
+// call; once a limit is hit, or the search is cancelled or its thread interrupted,
+// check returns false for good and the engine winds down with its best path.
+class SearchBudget {
+    static final int CHECK_INTERVAL = 256;
+
+    private final long maxNodes;    // Long.MAX_VALUE if unlimited
+    private final long maxBytes;    // Long.MAX_VALUE if unlimited
+    private final long deadline;    // System.nanoTime() to give up at
+    private final boolean timed;
+    private final CancellationToken token;  // null if none
+    private final Thread owner;     // the thread that started the search
+    private final AtomicLong nodes = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private volatile boolean exhausted;
+
+    SearchBudget(long maxNodes, long maxBytes, long timeLimitNanos, CancellationToken token) {
+        this.maxNodes = maxNodes;
+        this.maxBytes = maxBytes;
+        timed = timeLimitNanos > 0;
+        deadline = System.nanoTime() + timeLimitNanos;
+        this.token = token;
+        owner = Thread.currentThread();
+    }
+
+    // record newNodes more nodes taking newBytes more memory;
+    // false if the search must stop
+    boolean check(long newNodes, long newBytes) {
+        if (exhausted)
+            return false;
+        // 中断标志只读不清除，调用者之后仍能看到
+        if (nodes.addAndGet(newNodes) > maxNodes || bytes.addAndGet(newBytes) > maxBytes
+                || timed && System.nanoTime() - deadline > 0
+                || token != null && token.isCancelled() || owner.isInterrupted()) {
+            exhausted = true;
+            return false;
+        }
+        return true;
+    }
+
+    // has check returned false?
+    boolean isExhausted() {
+        return exhausted;
+    }
+
+    // the search ended with a proven result after all, as when one thread
+    // finds the solution while another runs out of budget
+    void completed() {
+        exhausted = false;
+    }
+
+    // rough memory taken by one stored node holding a board of dimension n:
+    // the Board object, its tile array above 4x4, and the engines' per-node slots
+    static long nodeBytes(int n) {
+        long board = 48;
+        if (n > Board.MAX_PACKED_DIMENSION)
+            board += (16 + (long) n * n * (n * n > 256 ? 2 : 1) + 7) & ~7L;
+        return board + 16;
+    }
+}
@@ -0,0 +1,11 @@
+// receives progress reports from a running search, see SolverOptions.listener
+public interface SearchListener {
+    // called on the searching thread with the live statistics;
+    // read what is needed and return quickly, the search waits meanwhile
+    void progress(SearchStats stats);
+
+    // called by the anytime search each time it finds a shorter solution,
+    // at most bound times as long as a shortest one
+    default void improved(Iterable<Board> solution, double bound) {
+    }
+}
@@ -0,0 +1,179 @@
+import java.util.Arrays;
+
+// counters and timings of one search, filled in by the search engines when
+// SolverOptions.stats is on. Updating them costs a few field increments per node.
+public class SearchStats {
+    private final SearchListener listener;  // null if nobody listens
+    private final long interval;            // expansions between progress reports
+    private long expanded;      // boards whose neighbors were generated
+    private long generated;     // neighbors created
+    private long duplicates;    // neighbors or boards dropped as already seen
+    private int peakOpen;       // largest open list size, 0 for IDA*
+    private int iterations;     // IDA* depth-first passes
+    private long[] histogram = new long[64];    // histogram[h] = boards expanded with heuristic h
+    private int initialEstimate = -1;
+    private int moves = -1;
+    private long started, searching, rebuilding, finished;  // System.nanoTime() of each phase
+
+    SearchStats(SearchListener listener, long interval) {
+        if (listener != null && interval < 1)
+            throw new IllegalArgumentException();
+        this.listener = listener;
+        this.interval = interval;
+    }
+
+    // the search is starting, before any setup such as the solvability check
+    void start() {
+        started = System.nanoTime();
+    }
+
+    // setup is done, the main loop starts expanding boards
+    void searching(int estimate) {
+        initialEstimate = estimate;
+        searching = System.nanoTime();
+    }
+
+    // the main loop is done, the solution is being rebuilt
+    void rebuilding() {
+        rebuilding = System.nanoTime();
+    }
+
+    // the search is over with a solution of the given length, -1 if none
+    void finish(int length) {
+        moves = length;
+        finished = System.nanoTime();
+        // 提前结束的搜索（比如无解）没有经过后面的阶段
+        if (searching == 0)
+            searching = finished;
+        if (rebuilding == 0)
+            rebuilding = finished;
+    }
+
+    void expand(int h) {
+        if (h >= histogram.length)
+            histogram = Arrays.copyOf(histogram, Math.max(h + 1, 2 * histogram.length));
+        histogram[h]++;
+        expanded++;
+        if (listener != null && expanded % interval == 0)
+            listener.progress(this);
+    }
+
+    void generate() {
+        generated++;
+    }
+
+    void duplicate() {
+        duplicates++;
+    }
+
+    void open(int size) {
+        if (size > peakOpen)
+            peakOpen = size;
+    }
+
+    void iteration() {
+        iterations++;
+    }
+
+    // report to the listener now, whatever the expansion count
+    void report() {
+        if (listener != null)
+            listener.progress(this);
+    }
+
+    // add the counts of that, a search of part of the same tree
+    void add(SearchStats that) {
+        expanded += that.expanded;
+        generated += that.generated;
+        duplicates += that.duplicates;
+        peakOpen = Math.max(peakOpen, that.peakOpen);
+        if (that.histogram.length > histogram.length)
+            histogram = Arrays.copyOf(histogram, that.histogram.length);
+        for (int h = 0; h < that.histogram.length; h++)
+            histogram[h] += that.histogram[h];
+    }
+
+    public long expanded() {
+        return expanded;
+    }
+
+    public long generated() {
+        return generated;
+    }
+
+    public long duplicates() {
+        return duplicates;
+    }
+
+    public int peakOpen() {
+        return peakOpen;
+    }
+
+    public int iterations() {
+        return iterations;
+    }
+
+    // number of boards expanded with heuristic value h
+    public long expandedWithEstimate(int h) {
+        if (h < 0)
+            throw new IllegalArgumentException();
+        return h < histogram.length ? histogram[h] : 0;
+    }
+
+    // largest heuristic value of an expanded board, -1 if none was expanded
+    public int maxEstimate() {
+        for (int h = histogram.length - 1; h >= 0; h--)
+            if (histogram[h] > 0)
+                return h;
+        return -1;
+    }
+
+    // heuristic value of the initial board, -1 if the search never started
+    public int initialEstimate() {
+        return initialEstimate;
+    }
+
+    // length of the solution found, -1 if none (yet)
+    public int moves() {
+        return moves;
+    }
+
+    // initial estimate over the solution length: 1 for a perfect heuristic,
+    // NaN until a solution with at least one move is found
+    public double heuristicAccuracy() {
+        if (moves <= 0 || initialEstimate < 0)
+            return Double.NaN;
+        return (double) initialEstimate / moves;
+    }
+
+    // time spent before the main loop: solvability check and heuristic setup
+    public long setupNanos() {
+        return (searching == 0 ? System.nanoTime() : searching) - started;
+    }
+
+    // time spent expanding boards
+    public long searchNanos() {
+        if (searching == 0)
+            return 0;
+        return (rebuilding == 0 ? System.nanoTime() : rebuilding) - searching;
+    }
+
+    // time spent rebuilding the solution path
+    public long pathNanos() {
+        if (rebuilding == 0)
+            return 0;
+        return (finished == 0 ? System.nanoTime() : finished) - rebuilding;
+    }
+
+    public long elapsedNanos() {
+        return (finished == 0 ? System.nanoTime() : finished) - started;
+    }
+
+    // 便于日志输出的单行摘要
+    public String toString() {
+        return String.format("expanded=%d generated=%d duplicates=%d peakOpen=%d iterations=%d "
+                        + "h0=%d moves=%d setup=%.3fms search=%.3fms path=%.3fms",
+                expanded, generated, duplicates, peakOpen, iterations, initialEstimate, moves,
+                setupNanos() / 1e6, searchNanos() / 1e6, pathNanos() / 1e6);
+    }
+}
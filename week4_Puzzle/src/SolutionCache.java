@@ -0,0 +1,195 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// shortest solutions shared between Solvers (see SolverOptions.cache): for every
+// board on a solved path, its distance to the goal and the first move towards it.
+// A board on the path of an earlier solution is then answered by following the
+// stored moves, without a search. Holds at most capacity boards, evicting the least
+// recently used; a cache opened on a file also appends what it learns to the file,
+// and reloads it the next time. Only boards up to 4x4 are cached, as their packed
+// keys (Board.key()) identify them exactly. Thread-safe.
+public class SolutionCache implements Closeable {
+    static final int MAGIC = 0x534F4C31;    // "SOL1"
+    static final int HEADER = 4;            // MAGIC
+    static final int RECORD = 12;           // board key, entry
+
+    // 每个board存一个int：到目标的步数左移2位，低2位是第一步的方向（Board.UP等）
+    private final LruTable entries;
+    private final int capacity;
+    private DataOutputStream out;   // null unless backed by a file
+    private long hits, misses;
+    private long loadEvictions;     // evictions while loading the file
+
+    // an in-memory cache of at most capacity boards (up to 2^29), taking about
+    // 30 bytes per board, allocated as the cache fills
+    public SolutionCache(int capacity) {
+        if (capacity < 1 || capacity > 1 << 29)
+            throw new IllegalArgumentException();
+        this.capacity = capacity;
+        entries = new LruTable(capacity);
+    }
+
+    // a cache of at most capacity boards, loaded from file (created if missing)
+    // and appending to it from now on; the file is rewritten with just the loaded
+    // boards when most of its records are stale
+    public static SolutionCache open(String filename, int capacity) throws IOException {
+        SolutionCache cache = new SolutionCache(capacity);
+        Path file = Paths.get(filename);
+        long records = Files.exists(file) ? cache.load(file) : -1;
+        if (records < 0 || records > 2L * cache.entries.size()) {
+            Path tmp = Paths.get(filename + ".tmp");
+            try (DataOutputStream o = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                o.writeInt(MAGIC);
+                // 按从旧到新的顺序写，重新加载后LRU的顺序不变
+                for (int e = cache.entries.oldest(); e >= 0; e = cache.entries.newer(e)) {
+                    o.writeLong(cache.entries.key(e));
+                    o.writeInt(cache.entries.value(e));
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            records = cache.entries.size();
+        }
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE);
+        try {
+            // drop a record cut short by a crash, so the next one starts in the right place
+            ch.truncate(HEADER + records * RECORD);
+            ch.position(HEADER + records * RECORD);
+        }
+        catch (IOException e) {
+            ch.close();
+            throw e;
+        }
+        cache.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch)));
+        return cache;
+    }
+
+    // read the records of file into the cache, later ones replacing earlier ones;
+    // the number of whole records
+    private long load(Path file) throws IOException {
+        long records = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException(file + ": not a solution cache file");
+            while (true) {
+                long key = in.readLong();
+                int entry = in.readInt();
+                entries.put(key, entry);
+                records++;
+            }
+        }
+        catch (EOFException e) {
+            if (records == 0 && Files.size(file) < HEADER)
+                throw new IOException(file + ": not a solution cache file");
+        }
+        // 加载时的淘汰不算进evictions()
+        loadEvictions = entries.evictions();
+        return records;
+    }
+
+    // the stored shortest path from initial to the goal, or null if some board
+    // on it is missing (a miss)
+    synchronized MovePath path(Board initial) {
+        if (initial.dimension() > Board.MAX_PACKED_DIMENSION)
+            return null;
+        int first = entries.get(initial.key());
+        int length = first < 0 ? 0 : first >>> 2;
+        int[] directions = new int[length];
+        Board board = initial;
+        for (int i = 0; first >= 0 && i <= length; i++) {
+            int entry = i == 0 ? first : entries.get(board.key());
+            // 路径上的某个board被淘汰了，或者文件里的记录对不上，都当作没命中
+            if (entry < 0 || entry >>> 2 != length - i)
+                break;
+            if (i == length) {
+                hits++;
+                return new MovePath(initial, directions, length);
+            }
+            int to = board.target(entry & 3);
+            if (to < 0)
+                break;
+            directions[i] = entry & 3;
+            board = board.moveBlank(to);
+        }
+        misses++;
+        return null;
+    }
+
+    // store every board on path, which must be a shortest solution
+    synchronized void put(MovePath path) {
+        int length = path.length();
+        int i = 0;
+        try {
+            for (Board board : path) {
+                if (board.dimension() > Board.MAX_PACKED_DIMENSION)
+                    return;
+                int entry = (length - i) << 2 | (i < length ? path.direction(i) : 0);
+                int old = entries.put(board.key(), entry);
+                if (out != null && old != entry) {
+                    out.writeLong(board.key());
+                    out.writeInt(entry);
+                }
+                i++;
+            }
+            if (out != null)
+                out.flush();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // number of boards in the cache
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    // searches answered from the cache
+    public synchronized long hits() {
+        return hits;
+    }
+
+    // searches the cache could not answer
+    public synchronized long misses() {
+        return misses;
+    }
+
+    // boards dropped to make room for newer ones
+    public synchronized long evictions() {
+        return entries.evictions() - loadEvictions;
+    }
+
+    // hits over lookups, NaN before the first lookup
+    public synchronized double hitRate() {
+        return hits + misses == 0 ? Double.NaN : (double) hits / (hits + misses);
+    }
+
+    // stop appending to the file, if any; the cache itself stays usable in memory
+    public synchronized void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    public synchronized String toString() {
+        return String.format("size=%d capacity=%d hits=%d misses=%d evictions=%d",
+                entries.size(), capacity, hits, misses, evictions());
+    }
+}
@@ -1,92 +1,230 @@
-import edu.princeton.cs.algs4.MinPQ;
-import edu.princeton.cs.algs4.Stack;
 import edu.princeton.cs.algs4.In;
 import edu.princeton.cs.algs4.StdOut;
 
+import java.util.Arrays;
+
 public class Solver {
-    private final Stack<Board> result;
+    // how a search ended
+    public enum Status {
+        SOLVED,         // a shortest solution was found
+        UNSOLVABLE,     // the board has no solution
+        ABORTED         // a limit or cancellation stopped the search first
+    }
+
+    private final MovePath result;   // solution, or best partial path if aborted; null if unsolvable
+    private final Status status;
     private final int moves;
+    private final double bound;        // result is at most bound times longer than a shortest solution
+    private final SearchStats stats;   // null unless SolverOptions.stats is on
 
-    private class SearchNode implements Comparable<SearchNode> {
-        private final Board board;
-        private final int moves;
-        private final SearchNode pre;
-        private final int priority;
-
-        SearchNode(Board b, SearchNode p) {
-            board = b;
-            if (p == null)
-                moves = 0;
-            else
-                moves = p.moves + 1;
-            pre = p;
-            priority = board.manhattan() + moves;
-        }
+    // A* search nodes stored column-wise in growable arrays instead of one object
+    // each: node i holds boards[i], reached in moves[i] moves from node parent[i]
+    private static class SearchNodes {
+        private Board[] boards = new Board[1 << 10];
+        private int[] parent = new int[1 << 10];
+        private int[] moves = new int[1 << 10];
+        private int size;
 
-        public int compareTo(SearchNode that) {
-            return this.priority - that.priority;
+        // the id of a new node
+        int add(Board board, int pre, int m) {
+            if (size == boards.length) {
+                boards = Arrays.copyOf(boards, 2 * size);
+                parent = Arrays.copyOf(parent, 2 * size);
+                moves = Arrays.copyOf(moves, 2 * size);
+            }
+            boards[size] = board;
+            parent[size] = pre;
+            moves[size] = m;
+            return size++;
         }
     }
 
     // find a solution to the initial board (using the A* algorithm)
     public Solver(Board initial) {
-        if (initial == null) {
+        this(initial, new SolverOptions());
+    }
+
+    // find a solution to the initial board using the given options
+    public Solver(Board initial, SolverOptions options) {
+        if (initial == null || options == null) {
             throw new IllegalArgumentException();
         }
-        // use pq to find the goal
-        MinPQ<SearchNode> pq = new MinPQ<>();
-        MinPQ<SearchNode> twinPQ = new MinPQ<>();
-        pq.insert(new SearchNode(initial, null));
-        twinPQ.insert(new SearchNode(initial.twin(), null));
-        SearchNode min, twinMin;
+        Heuristic heuristic = options.heuristic();
+        stats = options.newStats();
+        if (stats != null)
+            stats.start();
+        SearchBudget budget = options.newBudget();
+        SolutionCache cache = options.cache();
+        MovePath cached = cache == null ? null : cache.path(initial);
+        AnytimeSearch anytime = null;
+        if (cached != null)
+            result = cached;
+        else if (options.algorithm() == SolverOptions.Algorithm.IDA_STAR)
+            result = replay(initial, new IDAStar(initial, heuristic, stats, budget).solve());
+        else if (options.algorithm() == SolverOptions.Algorithm.PARALLEL_IDA_STAR)
+            result = replay(initial, new ParallelIDAStar(initial, heuristic, options.threads(), stats, budget).solve());
+        else if (options.algorithm() == SolverOptions.Algorithm.BIDIRECTIONAL)
+            result = new BidirectionalSearch(initial, heuristic, stats, budget).solve();
+        else if (options.algorithm() == SolverOptions.Algorithm.ANYTIME_A_STAR) {
+            anytime = new AnytimeSearch(initial, options, stats, budget);
+            result = anytime.solve();
+        }
+        else
+            result = aStar(initial, options, stats, budget);
+        // 引擎在预算用完后返回的是目前最好的部分路径
+        if (result == null)
+            status = Status.UNSOLVABLE;
+        else if (budget.isExhausted())
+            status = Status.ABORTED;
+        else
+            status = Status.SOLVED;
+        moves = status == Status.SOLVED ? result.length() : -1;
+        if (anytime != null)
+            bound = anytime.bound();
+        else if (status != Status.SOLVED)
+            bound = Double.POSITIVE_INFINITY;
+        else if (cached != null)
+            bound = 1.0;
+        else if (options.algorithm() == SolverOptions.Algorithm.A_STAR)
+            bound = new WeightedKey(options.weight()).weight();
+        else
+            bound = 1.0;
+        // 只缓存最短解，加权搜索得到的解不一定最短
+        if (cache != null && cached == null && status == Status.SOLVED && bound == 1.0)
+            cache.put(result);
+        if (stats != null)
+            stats.finish(moves);
+    }
+
+    // a shortest solution (at most w times as long with a weight w), or null if
+    // there is none; once budget runs out, the path to the expanded board with
+    // the smallest heuristic value
+    private static MovePath aStar(Board initial, SolverOptions options, SearchStats stats,
+                                  SearchBudget budget) {
+        // 用逆序数的奇偶性判断是否有解，不再需要对twin同时做一遍A*
+        if (!initial.isSolvable())
+            return null;
+        Heuristic heuristic = options.heuristic();
+        ClosedSet closed = null;
+        if (options.closedSetBytes() > 0)
+            closed = new ClosedSet(options.closedSetBytes());
+        // the open list is keyed by f = moves + h; ties go to the node with more moves,
+        // which is closer to the goal
+        SearchNodes nodes = new SearchNodes();
+        BucketQueue open = new BucketQueue();
+        WeightedKey key = new WeightedKey(options.weight());
+        int h0 = heuristic.estimate(initial);
+        open.insert(nodes.add(initial, -1, 0), key.key(0, h0), 0);
+        if (stats != null)
+            stats.searching(h0);
+        long nodeBytes = SearchBudget.nodeBytes(initial.dimension());
+        int charged = 0;        // nodes reported to the budget so far
+        int expanded = 0;
+        int best = 0, bestH = h0;
+        int min;
         while (true) {
-            min = pq.delMin();
-            if (min.board.isGoal()) break;
-            twinMin = twinPQ.delMin();
-            if (twinMin.board.isGoal()) break;
-            for (Board b : min.board.neighbors()) {
-                if (min.pre == null || !b.equals(min.pre.board)) {
-                    pq.insert(new SearchNode(b, min));
+            int f = open.minKey();
+            min = open.delMin();
+            Board board = nodes.boards[min];
+            if (board.isGoal()) break;
+            if (closed != null) {
+                // 同一个board可能以不同的路径多次进入open list；已经用不多于这么多步展开过的就跳过，
+                // 步数更少时重新展开（启发函数只是可采纳、不一致时会发生）
+                if (closed.covers(board.key(), nodes.moves[min])) {
+                    if (stats != null)
+                        stats.duplicate();
+                    continue;
                 }
+                closed.add(board.key(), nodes.moves[min]);
             }
-            for (Board b : twinMin.board.neighbors()) {
-                if (twinMin.pre == null || !b.equals(twinMin.pre.board)) {
-                    twinPQ.insert(new SearchNode(b, twinMin));
+            int pre = nodes.parent[min];
+            int g = nodes.moves[min] + 1;
+            int h = key.estimate(f, nodes.moves[min]);
+            if (h < bestH) {
+                bestH = h;
+                best = min;
+            }
+            if (++expanded % SearchBudget.CHECK_INTERVAL == 0) {
+                if (!budget.check(nodes.size - charged, (nodes.size - charged) * nodeBytes)) {
+                    min = best;
+                    break;
                 }
+                charged = nodes.size;
             }
-        }
-        // determine whether solvable
-        if (!min.board.isGoal()) {
-            moves = -1;
-            result = null;
-        }
-        else {
-            // track the solution trace and get the result
-            result = new Stack<>();
-            SearchNode p = min;
-            while (p != null) {
-                result.push(p.board);
-                p = p.pre;
+            if (stats != null)
+                stats.expand(h);
+            for (Board b : board.neighbors()) {
+                if (pre >= 0 && b.equals(nodes.boards[pre]) || closed != null && closed.covers(b.key(), g)) {
+                    if (stats != null)
+                        stats.duplicate();
+                    continue;
+                }
+                open.insert(nodes.add(b, min, g), key.key(g, heuristic.estimate(b)), g);
+                if (stats != null)
+                    stats.generate();
             }
-            moves = min.moves;
+            if (stats != null)
+                stats.open(open.size());
         }
+        if (stats != null)
+            stats.rebuilding();
+        // track the solution trace and get the result
+        int[] directions = new int[nodes.moves[min]];
+        for (int p = min; nodes.parent[p] >= 0; p = nodes.parent[p]) {
+            int pre = nodes.parent[p];
+            directions[nodes.moves[pre]] = MovePath.direction(nodes.boards[pre].blankSquare(),
+                    nodes.boards[p].blankSquare(), initial.dimension());
+        }
+        return new MovePath(initial, directions, directions.length);
+    }
+
+    // the path moving the blank to each of squares in turn,
+    // or null if squares is null (the IDA* engines found no solution)
+    private static MovePath replay(Board initial, int[] squares) {
+        return squares == null ? null : MovePath.ofSquares(initial, squares);
     }
 
     // is the initial board solvable?
     public boolean isSolvable() {
-        return result != null;
+        return status != Status.UNSOLVABLE;
     }
 
-    // min number of moves to solve initial board; -1 if unsolvable
+    // min number of moves to solve initial board (the length of the solution
+    // found when searching with a weight); -1 if unsolvable or aborted
     public int moves() {
         return moves;
     }
 
-    // sequence of boards in a shortest solution; null if unsolvable
+    // the solution, or the best path if aborted, is at most this many times as
+    // long as a shortest solution: 1 when it is a shortest one, infinite when
+    // there is no full solution
+    public double suboptimalityBound() {
+        return bound;
+    }
+
+    // sequence of boards in a shortest solution (or one within suboptimalityBound()
+    // of it); null if unsolvable or aborted
     public Iterable<Board> solution() {
+        return status == Status.SOLVED ? result : null;
+    }
+
+    // whether the search finished, and how
+    public Status status() {
+        return status;
+    }
+
+    // the solution if solved; if aborted, the anytime search's best solution so far
+    // or, failing that, the moves to the board the search judged closest to the
+    // goal (smallest heuristic value); null if unsolvable
+    public Iterable<Board> bestPath() {
         return result;
     }
 
+    // counters and timings of the search; null unless SolverOptions.stats was on
+    public SearchStats stats() {
+        return stats;
+    }
+
     // test client (see below)
     public static void main(String[] args) {
 
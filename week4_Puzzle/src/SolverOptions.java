@@ -0,0 +1,188 @@
+import java.time.Duration;
+
+// optional settings for Solver; the defaults give the plain A* of the assignment
+public class SolverOptions {
+    // search algorithms Solver can run
+    public enum Algorithm {
+        A_STAR,     // best-first search, memory grows with the nodes generated
+        IDA_STAR,   // iterative-deepening A*, memory linear in the solution length
+        PARALLEL_IDA_STAR,  // IDA* with each iteration's subtrees searched on several threads
+        BIDIRECTIONAL,      // A* from both the initial board and the goal, meeting in the middle
+        ANYTIME_A_STAR      // ARA*: weighted A* passes with a falling weight, each one
+                            // improving the solution until it is proven shortest
+    }
+
+    private Algorithm algorithm = Algorithm.A_STAR;
+    private long closedSetBytes;   // 0 means no closed set
+    private Heuristic heuristic = new ManhattanHeuristic();
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private boolean stats;
+    private SearchListener listener;
+    private long interval;
+    private long maxNodes = Long.MAX_VALUE;
+    private long maxMemory = Long.MAX_VALUE;
+    private long timeLimitNanos;    // 0 means no limit
+    private CancellationToken token;
+    private double weight = 1.0;
+    private double weightStep = 0.5;
+    private SolutionCache cache;    // null means no cache
+
+    // search with the given algorithm
+    public SolverOptions algorithm(Algorithm a) {
+        if (a == null)
+            throw new IllegalArgumentException();
+        algorithm = a;
+        return this;
+    }
+
+    // skip boards that were already expanded with as few moves, keeping at most
+    // maxBytes of them; a board reached again with fewer moves is expanded again,
+    // so an admissible heuristic still gives a shortest solution. A* only, IDA*
+    // keeps no record of expanded boards
+    public SolverOptions closedSet(long maxBytes) {
+        if (maxBytes <= 0)
+            throw new IllegalArgumentException();
+        closedSetBytes = maxBytes;
+        return this;
+    }
+
+    // estimate the distance to the goal with h instead of the Manhattan distance;
+    // h must be admissible for the solution to be optimal
+    public SolverOptions heuristic(Heuristic h) {
+        if (h == null)
+            throw new IllegalArgumentException();
+        heuristic = h;
+        return this;
+    }
+
+    // number of threads for PARALLEL_IDA_STAR; the heuristic must then be thread-safe
+    public SolverOptions threads(int count) {
+        if (count < 1)
+            throw new IllegalArgumentException();
+        threads = count;
+        return this;
+    }
+
+    // collect SearchStats for Solver.stats()
+    public SolverOptions stats(boolean on) {
+        stats = on;
+        return this;
+    }
+
+    // report progress to listener every interval boards expanded, and turn stats on;
+    // PARALLEL_IDA_STAR reports after each iteration instead
+    public SolverOptions listener(SearchListener l, long interval) {
+        if (l == null || interval < 1)
+            throw new IllegalArgumentException();
+        listener = l;
+        this.interval = interval;
+        stats = true;
+        return this;
+    }
+
+    // order boards by g + w * h (w is rounded to a multiple of 1/8): solutions can be
+    // up to w times longer than the shortest, but come much faster on hard boards.
+    // ANYTIME_A_STAR starts from this weight (it should be above 1 there); the
+    // IDA* and bidirectional searches ignore it
+    public SolverOptions weight(double w) {
+        if (!(w >= 1) || w > 1024)
+            throw new IllegalArgumentException();
+        weight = w;
+        return this;
+    }
+
+    // how much ANYTIME_A_STAR lowers the weight after each pass
+    public SolverOptions weightStep(double step) {
+        if (!(step > 0))
+            throw new IllegalArgumentException();
+        weightStep = step;
+        return this;
+    }
+
+    // give up after storing about count search nodes (A* and bidirectional search)
+    // or generating them (IDA*); limits are checked every few hundred nodes
+    public SolverOptions maxNodes(long count) {
+        if (count < 1)
+            throw new IllegalArgumentException();
+        maxNodes = count;
+        return this;
+    }
+
+    // give up once the stored search nodes take about bytes of memory;
+    // IDA* stores none, so only the other limits stop it
+    public SolverOptions maxMemory(long bytes) {
+        if (bytes < 1)
+            throw new IllegalArgumentException();
+        maxMemory = bytes;
+        return this;
+    }
+
+    // give up when the search has run for longer than limit
+    public SolverOptions timeLimit(Duration limit) {
+        if (limit == null || limit.isNegative() || limit.isZero())
+            throw new IllegalArgumentException();
+        timeLimitNanos = limit.toNanos();
+        return this;
+    }
+
+    // give up when token is cancelled; interrupting the thread running the
+    // Solver constructor also stops it, leaving the interrupt flag set
+    public SolverOptions cancellation(CancellationToken token) {
+        if (token == null)
+            throw new IllegalArgumentException();
+        this.token = token;
+        return this;
+    }
+
+    // answer boards lying on an earlier solution's path from cache, and store each
+    // shortest solution found there; the heuristic must be admissible, as every
+    // solution proven shortest with it is taken for a shortest one
+    public SolverOptions cache(SolutionCache c) {
+        if (c == null)
+            throw new IllegalArgumentException();
+        cache = c;
+        return this;
+    }
+
+    double weight() {
+        return weight;
+    }
+
+    double weightStep() {
+        return weightStep;
+    }
+
+    SearchListener listener() {
+        return listener;
+    }
+
+    Algorithm algorithm() {
+        return algorithm;
+    }
+
+    long closedSetBytes() {
+        return closedSetBytes;
+    }
+
+    SolutionCache cache() {
+        return cache;
+    }
+
+    Heuristic heuristic() {
+        return heuristic;
+    }
+
+    int threads() {
+        return threads;
+    }
+
+    // a fresh SearchStats for one search, or null if stats are off
+    SearchStats newStats() {
+        return stats ? new SearchStats(listener, interval) : null;
+    }
+
+    // the limits for a search starting now
+    SearchBudget newBudget() {
+        return new SearchBudget(maxNodes, maxMemory, timeLimitNanos, token);
+    }
+}
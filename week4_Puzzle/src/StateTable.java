@@ -0,0 +1,74 @@
+// map from Board keys (see Board.key()) to non-negative ints,
+// stored in a linear-probing table of primitive arrays. For n > 4 keys are
+// zobrist hashes, so two boards can share one: a user that keeps the boards
+// should compare them on a hit
+class StateTable {
+    private static final long EMPTY = 0;    // key 0 is stored in zeroValue instead
+    private static final int ABSENT = -1;
+
+    private long[] keys = new long[1 << 10];
+    private int[] values = new int[1 << 10];
+    private int zeroValue = ABSENT;
+    private int size;
+
+    // number of keys in the table
+    int size() {
+        return size;
+    }
+
+    // the value for key, or -1 if there is none
+    int get(long key) {
+        if (key == EMPTY)
+            return zeroValue;
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key)
+                return values[i];
+        }
+        return ABSENT;
+    }
+
+    void put(long key, int value) {
+        if (value < 0)
+            throw new IllegalArgumentException();
+        if (key == EMPTY) {
+            if (zeroValue == ABSENT)
+                size++;
+            zeroValue = value;
+            return;
+        }
+        if (4 * (size + 1) > 3 * keys.length)
+            resize(2 * keys.length);
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != EMPTY && keys[i] != key)
+            i = (i + 1) & mask;
+        if (keys[i] == EMPTY)
+            size++;
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == EMPTY)
+                continue;
+            int i = mix(oldKeys[j]) & mask;
+            while (keys[i] != EMPTY)
+                i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+    // packed boards differ only in a few low bits, so spread them before masking
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,36 @@
+// integer priorities for the bucket queue that order boards like f = g + w * h:
+// key = g * scale + h * weight, with w rounded to a multiple of 1 / PRECISION
+class WeightedKey {
+    static final int PRECISION = 8;
+
+    private final int scale;
+    private final int weight;
+
+    WeightedKey(double w) {
+        if (!(w >= 1) || w > 1 << 10)
+            throw new IllegalArgumentException();
+        int s = PRECISION, v = (int) Math.round(w * PRECISION);
+        // 权重是整数（比如1）时约分，键的范围不会无谓地扩大PRECISION倍
+        int d = gcd(s, v);
+        scale = s / d;
+        weight = v / d;
+    }
+
+    int key(int g, int h) {
+        return g * scale + h * weight;
+    }
+
+    // the heuristic value of a board with that key and g
+    int estimate(int key, int g) {
+        return (key - g * scale) / weight;
+    }
+
+    // the weight actually used, w after rounding
+    double weight() {
+        return (double) weight / scale;
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+}
@@ -0,0 +1,109 @@
+import edu.princeton.cs.algs4.Point2D;
+import edu.princeton.cs.algs4.RectHV;
+
+import java.awt.image.BufferedImage;
+
+// a KdTree for many reader threads and a few writers. Queries take no lock: they run
+// on the snapshot published by the last write, which stays valid while later writes
+// append to the shared arrays (deletes and rebuilds copy the nodes they would change).
+// Writers are serialized and publish a new snapshot per call; rebalance() builds a
+// balanced copy off to the side and swaps it in whole.
+public class ConcurrentKdTree {
+    private KdTree tree;                // guarded by this
+    private volatile KdTree snapshot;   // what readers see
+
+    // construct an empty set of points
+    public ConcurrentKdTree() {
+        tree = new KdTree();
+        snapshot = tree.snapshot();
+    }
+
+    // construct a balanced tree holding the given points
+    public ConcurrentKdTree(Point2D[] points) {
+        tree = new KdTree(points);
+        snapshot = tree.snapshot();
+    }
+
+    // the points as of now, as a read-only KdTree; use it to run several
+    // queries against the same set of points
+    public KdTree snapshot() {
+        return snapshot;
+    }
+
+    // add the point to the set (if it is not already in the set)
+    public synchronized void insert(Point2D p) {
+        tree.insert(p);
+        snapshot = tree.snapshot();
+    }
+
+    // add all the points, publishing them to readers together
+    public synchronized void insertAll(Iterable<Point2D> points) {
+        if (points == null)
+            throw new IllegalArgumentException();
+        for (Point2D p : points)
+            tree.insert(p);
+        snapshot = tree.snapshot();
+    }
+
+    // remove the point from the set (if it is in the set)
+    public synchronized void delete(Point2D p) {
+        tree.delete(p);
+        snapshot = tree.snapshot();
+    }
+
+    // rebuild the tree perfectly balanced, dropping deleted points and the node copies
+    // left behind for old snapshots; readers keep using the old tree until the new one is ready
+    public synchronized void rebalance() {
+        tree = tree.rebuilt();
+        snapshot = tree.snapshot();
+    }
+
+    public boolean isEmpty() {
+        return snapshot.isEmpty();
+    }
+
+    public int size() {
+        return snapshot.size();
+    }
+
+    public boolean contains(Point2D p) {
+        return snapshot.contains(p);
+    }
+
+    public Iterable<Point2D> range(RectHV rect) {
+        return snapshot.range(rect);
+    }
+
+    public void range(RectHV rect, PointVisitor visitor) {
+        snapshot.range(rect, visitor);
+    }
+
+    public int count(RectHV rect) {
+        return snapshot.count(rect);
+    }
+
+    public Point2D nearest(Point2D p) {
+        return snapshot.nearest(p);
+    }
+
+    public Iterable<Point2D> nearest(Point2D p, int k) {
+        return snapshot.nearest(p, k);
+    }
+
+    public Iterable<Point2D> withinRadius(Point2D p, double r) {
+        return snapshot.withinRadius(p, r);
+    }
+
+    // draw all points to standard draw
+    public void draw() {
+        snapshot.draw();
+    }
+
+    public void draw(RectHV viewport, int width, int height) {
+        snapshot.draw(viewport, width, height);
+    }
+
+    public BufferedImage render(RectHV viewport, int width, int height) {
+        return snapshot.render(viewport, width, height);
+    }
+}
@@ -0,0 +1,380 @@
+import edu.princeton.cs.algs4.Point2D;
+import edu.princeton.cs.algs4.RectHV;
+import edu.princeton.cs.algs4.StdDraw;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// a set of points in a uniform grid of side x side cells, for dense and roughly
+// uniform points (such as the assignment's, in the unit square): contains is expected
+// O(1), and nearest searches rings of cells outward from the query's cell, which on
+// uniform points stops after the first ring or two. The grid keeps about TARGET_LOAD
+// points per cell, rebuilding over the points' bounding box as the set grows or
+// shrinks; points outside the grid go into its outermost cells. Clustered points
+// crowd into a few cells, where KdTree does better.
+public class GridPointSET {
+    private static final int TARGET_LOAD = 2;       // points per cell after a rebuild
+    private static final int MAX_LOAD = 8;          // more per cell on average triggers a rebuild
+    private static final int MAX_SIDE = 1 << 13;
+
+    // 每个格子的点按x0, y0, x1, y1, ...交错存放在一个double[]里（空格子为null），
+    // 不为每个点分配Point2D对象。格子(i, j)是cells[j * side + i]，i是列，j是行
+    private double[][] cells;
+    private int[] counts;       // points in each cell
+    private int side;
+    private double x0, y0;      // lower left corner of the grid
+    private double w, h;        // width and height of a cell
+    private int size;
+
+    // the best k points found so far by a nearest-neighbor query, in a max-heap
+    // on squared distance, so the farthest of them is at the root
+    private static class Neighbors {
+        private final int k;
+        private final double[] dist;
+        private final double[] x;
+        private final double[] y;
+        private int n;
+
+        Neighbors(int k) {
+            this.k = k;
+            dist = new double[k];
+            x = new double[k];
+            y = new double[k];
+        }
+
+        // squared distance a point must beat to be kept
+        double bound() {
+            return n < k ? Double.POSITIVE_INFINITY : dist[0];
+        }
+
+        void offer(double d, double px, double py) {
+            int i;
+            if (n < k) {
+                i = n++;
+                // 上浮
+                while (i > 0 && dist[(i - 1) / 2] < d) {
+                    move((i - 1) / 2, i);
+                    i = (i - 1) / 2;
+                }
+            }
+            else {
+                i = 0;
+                // 替换堆顶后下沉
+                while (2 * i + 1 < n) {
+                    int c = 2 * i + 1;
+                    if (c + 1 < n && dist[c + 1] > dist[c])
+                        c++;
+                    if (dist[c] <= d)
+                        break;
+                    move(c, i);
+                    i = c;
+                }
+            }
+            dist[i] = d;
+            x[i] = px;
+            y[i] = py;
+        }
+
+        private void move(int from, int to) {
+            dist[to] = dist[from];
+            x[to] = x[from];
+            y[to] = y[from];
+        }
+
+        // the points kept, nearest first
+        ArrayList<Point2D> drain() {
+            Point2D[] a = new Point2D[n];
+            while (n > 0) {
+                a[n - 1] = new Point2D(x[0], y[0]);
+                double d = dist[--n];
+                double px = x[n], py = y[n];
+                int i = 0;
+                while (2 * i + 1 < n) {
+                    int c = 2 * i + 1;
+                    if (c + 1 < n && dist[c + 1] > dist[c])
+                        c++;
+                    if (dist[c] <= d)
+                        break;
+                    move(c, i);
+                    i = c;
+                }
+                dist[i] = d;
+                x[i] = px;
+                y[i] = py;
+            }
+            return new ArrayList<>(Arrays.asList(a));
+        }
+    }
+
+    // construct an empty set of points
+    public GridPointSET() {
+        layout(1, 0, 0, 1, 1);
+    }
+
+    // an empty grid of side x side cells over [xmin, xmax] x [ymin, ymax]
+    private void layout(int side, double xmin, double ymin, double xmax, double ymax) {
+        this.side = side;
+        cells = new double[side * side][];
+        counts = new int[side * side];
+        x0 = xmin;
+        y0 = ymin;
+        w = (xmax - xmin) / side;
+        h = (ymax - ymin) / side;
+        // 所有点的x（或y）都相同，或者范围大到溢出时，退回单位正方形的尺寸
+        if (!(w > 0 && w < Double.POSITIVE_INFINITY))
+            w = 1.0 / side;
+        if (!(h > 0 && h < Double.POSITIVE_INFINITY))
+            h = 1.0 / side;
+    }
+
+    // move the points into a grid sized for size points over their bounding box
+    private void rebuild() {
+        double xmin = Double.POSITIVE_INFINITY, ymin = Double.POSITIVE_INFINITY;
+        double xmax = Double.NEGATIVE_INFINITY, ymax = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < cells.length; c++)
+            for (int k = 0; k < 2 * counts[c]; k += 2) {
+                xmin = Math.min(xmin, cells[c][k]);
+                xmax = Math.max(xmax, cells[c][k]);
+                ymin = Math.min(ymin, cells[c][k + 1]);
+                ymax = Math.max(ymax, cells[c][k + 1]);
+            }
+        double[][] oldCells = cells;
+        int[] oldCounts = counts;
+        int s = (int) Math.min(MAX_SIDE, Math.max(1, Math.ceil(Math.sqrt((double) size / TARGET_LOAD))));
+        if (size == 0)
+            layout(s, 0, 0, 1, 1);
+        else
+            layout(s, xmin, ymin, xmax, ymax);
+        for (int c = 0; c < oldCells.length; c++)
+            for (int k = 0; k < 2 * oldCounts[c]; k += 2)
+                add(cell(oldCells[c][k], oldCells[c][k + 1]), oldCells[c][k], oldCells[c][k + 1]);
+    }
+
+    // the column holding x, the nearest one if x is outside the grid
+    private int column(double x) {
+        double i = Math.floor((x - x0) / w);
+        return i < 0 ? 0 : i >= side ? side - 1 : (int) i;
+    }
+
+    private int row(double y) {
+        double j = Math.floor((y - y0) / h);
+        return j < 0 ? 0 : j >= side ? side - 1 : (int) j;
+    }
+
+    private int cell(double x, double y) {
+        return row(y) * side + column(x);
+    }
+
+    private void add(int c, double x, double y) {
+        if (cells[c] == null)
+            cells[c] = new double[2 * TARGET_LOAD];
+        else if (2 * counts[c] == cells[c].length)
+            cells[c] = Arrays.copyOf(cells[c], 2 * cells[c].length);
+        cells[c][2 * counts[c]] = x;
+        cells[c][2 * counts[c] + 1] = y;
+        counts[c]++;
+    }
+
+    // the index of (x, y) in cell c, or -1
+    private int find(int c, double x, double y) {
+        for (int k = 0; k < 2 * counts[c]; k += 2)
+            if (cells[c][k] == x && cells[c][k + 1] == y)
+                return k;
+        return -1;
+    }
+
+    // is the set empty?
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // number of points in the set
+    public int size() {
+        return size;
+    }
+
+    // add the point to the set (if it is not already in the set)
+    public void insert(Point2D p) {
+        if (p == null)
+            throw new IllegalArgumentException();
+        double x = p.x(), y = p.y();
+        int c = cell(x, y);
+        if (find(c, x, y) >= 0)
+            return;
+        add(c, x, y);
+        size++;
+        if (size > MAX_LOAD * cells.length && side < MAX_SIDE)
+            rebuild();
+    }
+
+    // remove the point from the set (if it is in the set)
+    public void delete(Point2D p) {
+        if (p == null)
+            throw new IllegalArgumentException();
+        double x = p.x(), y = p.y();
+        int c = cell(x, y);
+        int k = find(c, x, y);
+        if (k < 0)
+            return;
+        // 用格子里最后一个点填上空位
+        int last = 2 * --counts[c];
+        cells[c][k] = cells[c][last];
+        cells[c][k + 1] = cells[c][last + 1];
+        if (counts[c] == 0)
+            cells[c] = null;
+        size--;
+        if (side > 1 && (long) size * MAX_LOAD * TARGET_LOAD < cells.length)
+            rebuild();
+    }
+
+    // does the set contain point p?
+    public boolean contains(Point2D p) {
+        if (p == null)
+            throw new IllegalArgumentException();
+        return find(cell(p.x(), p.y()), p.x(), p.y()) >= 0;
+    }
+
+    // draw all points to standard draw
+    public void draw() {
+        for (int c = 0; c < cells.length; c++)
+            for (int k = 0; k < 2 * counts[c]; k += 2)
+                StdDraw.point(cells[c][k], cells[c][k + 1]);
+    }
+
+    // all points that are inside the rectangle (or on the boundary)
+    public Iterable<Point2D> range(RectHV rect) {
+        if (rect == null)
+            throw new IllegalArgumentException();
+        ArrayList<Point2D> a = new ArrayList<>();
+        range(rect, (x, y) -> a.add(new Point2D(x, y)));
+        return a;
+    }
+
+    // pass each point inside the rectangle (or on the boundary) to visitor, until it returns false
+    public void range(RectHV rect, PointVisitor visitor) {
+        if (rect == null || visitor == null)
+            throw new IllegalArgumentException();
+        double rxmin = rect.xmin(), rymin = rect.ymin(), rxmax = rect.xmax(), rymax = rect.ymax();
+        for (int j = row(rymin), j1 = row(rymax); j <= j1; j++)
+            for (int c = j * side + column(rxmin), c1 = j * side + column(rxmax); c <= c1; c++)
+                for (int k = 0; k < 2 * counts[c]; k += 2) {
+                    double x = cells[c][k], y = cells[c][k + 1];
+                    if (x >= rxmin && x <= rxmax && y >= rymin && y <= rymax && !visitor.visit(x, y))
+                        return;
+                }
+    }
+
+    // number of points inside the rectangle (or on the boundary)
+    public int count(RectHV rect) {
+        if (rect == null)
+            throw new IllegalArgumentException();
+        int[] n = {0};
+        range(rect, (x, y) -> {
+            n[0]++;
+            return true;
+        });
+        return n[0];
+    }
+
+    // a nearest neighbor in the set to point p; null if the set is empty
+    public Point2D nearest(Point2D p) {
+        if (p == null)
+            throw new IllegalArgumentException();
+        if (isEmpty()) return null;
+        Neighbors best = search(p.x(), p.y(), 1);
+        return new Point2D(best.x[0], best.y[0]);
+    }
+
+    // the k points nearest to p, nearest first; all of them if the set has fewer
+    public Iterable<Point2D> nearest(Point2D p, int k) {
+        if (p == null || k < 0)
+            throw new IllegalArgumentException();
+        if (k == 0 || isEmpty())
+            return new ArrayList<>();
+        return search(p.x(), p.y(), Math.min(k, size)).drain();
+    }
+
+    // search the rings of cells around the cell of (px, py), ring r being the cells r
+    // columns or rows away from it, until the points beyond the last ring are too far
+    private Neighbors search(double px, double py, int k) {
+        Neighbors best = new Neighbors(k);
+        int ci = column(px), cj = row(py);
+        for (int r = 0; ; r++) {
+            int i0 = ci - r, i1 = ci + r, j0 = cj - r, j1 = cj + r;
+            for (int j = Math.max(j0, 0); j <= Math.min(j1, side - 1); j++) {
+                if (j == j0 || j == j1) {
+                    for (int i = Math.max(i0, 0); i <= Math.min(i1, side - 1); i++)
+                        scan(i, j, px, py, best);
+                }
+                else {
+                    if (i0 >= 0)
+                        scan(i0, j, px, py, best);
+                    if (i1 < side)
+                        scan(i1, j, px, py, best);
+                }
+            }
+            // 还没搜过的点都在这些格子组成的正方形外面（网格最外层的格子向外无限延伸），
+            // 所以至少和(px, py)隔着到正方形边界的距离
+            double d = Double.POSITIVE_INFINITY;
+            if (i0 > 0)
+                d = Math.min(d, px - (x0 + i0 * w));
+            if (i1 < side - 1)
+                d = Math.min(d, x0 + (i1 + 1) * w - px);
+            if (j0 > 0)
+                d = Math.min(d, py - (y0 + j0 * h));
+            if (j1 < side - 1)
+                d = Math.min(d, y0 + (j1 + 1) * h - py);
+            if (d == Double.POSITIVE_INFINITY || d * d >= best.bound())
+                return best;
+        }
+    }
+
+    // offer best the points of cell (i, j), unless the whole cell is too far
+    private void scan(int i, int j, double px, double py, Neighbors best) {
+        int c = j * side + i;
+        if (counts[c] == 0)
+            return;
+        double xmin = i == 0 ? Double.NEGATIVE_INFINITY : x0 + i * w;
+        double xmax = i == side - 1 ? Double.POSITIVE_INFINITY : x0 + (i + 1) * w;
+        double ymin = j == 0 ? Double.NEGATIVE_INFINITY : y0 + j * h;
+        double ymax = j == side - 1 ? Double.POSITIVE_INFINITY : y0 + (j + 1) * h;
+        double dx = px < xmin ? xmin - px : px > xmax ? px - xmax : 0;
+        double dy = py < ymin ? ymin - py : py > ymax ? py - ymax : 0;
+        if (dx * dx + dy * dy >= best.bound())
+            return;
+        double[] a = cells[c];
+        for (int k = 0; k < 2 * counts[c]; k += 2) {
+            double d = (a[k] - px) * (a[k] - px) + (a[k + 1] - py) * (a[k + 1] - py);
+            if (d < best.bound())
+                best.offer(d, a[k], a[k + 1]);
+        }
+    }
+
+    // all points at distance at most r from p, in no particular order
+    public Iterable<Point2D> withinRadius(Point2D p, double r) {
+        if (p == null || !(r >= 0))
+            throw new IllegalArgumentException();
+        double px = p.x(), py = p.y();
+        ArrayList<Point2D> a = new ArrayList<>();
+        range(new RectHV(px - r, py - r, px + r, py + r), (x, y) -> {
+            if ((x - px) * (x - px) + (y - py) * (y - py) <= r * r)
+                a.add(new Point2D(x, y));
+            return true;
+        });
+        return a;
+    }
+
+    // unit testing of the methods (optional)
+    public static void main(String[] args) {
+        GridPointSET ps = new GridPointSET();
+        ps.insert(new Point2D(0.1, 0.2));
+        ps.insert(new Point2D(0.3, 0.4));
+        ps.insert(new Point2D(0.7, 0.8));
+        System.out.println("size  " + ps.size());
+        System.out.println("ps.contains(new Point2D(0.1, 0.2));  " + ps.contains(new Point2D(0.1, 0.2)));
+        System.out.println("ps.contains(new Point2D(0.5, 0.6));  " + ps.contains(new Point2D(0.5, 0.6)));
+        for (Point2D p : ps.range(new RectHV(0, 0, 0.5, 0.5)))
+            System.out.println("range  " + p);
+        System.out.println("ps.nearest(new Point2D(1, 1));  " + ps.nearest(new Point2D(1, 1)));
+    }
+}
@@ -1,164 +1,581 @@
-
-
 import edu.princeton.cs.algs4.Point2D;
 import edu.princeton.cs.algs4.RectHV;
 import edu.princeton.cs.algs4.StdDraw;
 
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.RecursiveAction;
 
 public class KdTree {
 
-    // 将Node设置为static，因为它没有必要用到任何外部类的实例变量和实例方法。
-    // （但是可以使用外部类的静态方法和静态变量）
-    // 如果Node需要设置泛型，则不能设置为static，因为内部类需要访问外部类声明的泛型
-    private static class Node {
-        private final Point2D p;      // the point
-        private final RectHV rect;    // the axis-aligned rectangle corresponding to this node
-        private Node lb;        // the left/bottom subtree
-        private Node rt;        // the right/top subtree
+    // 不再为每个点分配Node、RectHV和Point2D对象：节点i的坐标是xs[i]、ys[i]，
+    // 左/下子树和右/上子树是lb[i]、rt[i]（没有则为-1）。节点对应的矩形在遍历时由分割线推出来。
+    // 批量构造的树按前序排列，左子节点紧跟在父节点后面，一次查询访问的节点在内存里也挨得近。
+    // 删除只打标记；插入后如果新叶子太深，就把路径上失衡的子树按中位数重建（替罪羊树）
+    private static final int NONE = -1;
+    private static final double ALPHA = 0.7;    // the largest share of a subtree's nodes one child may hold
+    private double[] xs;
+    private double[] ys;
+    private int[] lb;       // the left/bottom subtree of each node
+    private int[] rt;       // the right/top subtree of each node
+    private int[] cnt;      // the number of points (nodes not dead) in the subtree of each node
+    private boolean[] dead; // nodes whose point was deleted, kept to split space until a rebuild
+    private int size;       // nodes are 0 .. size - 1, not all of them reachable from root
+    private int root;
+    private int live;       // points in the set
+    private int tombstones; // dead nodes reachable from root
+    private boolean shared;     // a snapshot uses the arrays: reachable nodes are copied, not changed
+    private boolean readOnly;   // a snapshot, sharing its arrays with the tree it was taken from
+    private int[] path;     // the nodes passed by the last descend
+    private static final boolean VERTICAL = true;
+
+    // the state of one nearest-neighbor query: the best k nodes found so far in a
+    // max-heap on squared distance, so the farthest of them is at the root
+    private static class Neighbors {
+        private final int k;
+        private final double[] dist;
+        private final int[] node;
+        private int count;
+        private double limit = Double.POSITIVE_INFINITY;   // bound while the heap is not full
 
-        public Node(Point2D pp, RectHV r) {
-            p = pp;
-            rect = r;
-            lb = null;
-            rt = null;
+        Neighbors(int k) {
+            this.k = k;
+            dist = new double[k];
+            node = new int[k];
         }
-    }
 
-    private Node root;
-    private int size;
-    private static final boolean VERTICAL = true;
-    private double minDis;
-    private Point2D nearest;
+        // squared distance a node must beat to get in
+        double bound() {
+            return count < k ? limit : dist[0];
+        }
+
+        void offer(double d, int n) {
+            int i;
+            if (count < k) {
+                // 堆未满：放到末尾再上浮
+                i = count++;
+                while (i > 0 && dist[(i - 1) / 2] < d) {
+                    dist[i] = dist[(i - 1) / 2];
+                    node[i] = node[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+            }
+            else {
+                // 堆已满：替换掉最远的堆顶再下沉
+                i = 0;
+                while (2 * i + 1 < count) {
+                    int c = 2 * i + 1;
+                    if (c + 1 < count && dist[c + 1] > dist[c])
+                        c++;
+                    if (dist[c] <= d)
+                        break;
+                    dist[i] = dist[c];
+                    node[i] = node[c];
+                    i = c;
+                }
+            }
+            dist[i] = d;
+            node[i] = n;
+        }
+
+        // empty the heap, and only take nodes nearer than limit from now on
+        void clear(double limit) {
+            count = 0;
+            this.limit = limit;
+        }
+
+        // the nodes found, nearest first; empties the heap
+        int[] drain() {
+            int[] sorted = new int[count];
+            while (count > 0) {
+                sorted[count - 1] = node[0];
+                double d = dist[--count];
+                int n = node[count];
+                // 把最后一个元素放到堆顶再下沉
+                int i = 0;
+                while (2 * i + 1 < count) {
+                    int c = 2 * i + 1;
+                    if (c + 1 < count && dist[c + 1] > dist[c])
+                        c++;
+                    if (dist[c] <= d)
+                        break;
+                    dist[i] = dist[c];
+                    node[i] = node[c];
+                    i = c;
+                }
+                dist[i] = d;
+                node[i] = n;
+            }
+            return sorted;
+        }
+    }
 
     // construct an empty set of points
     public KdTree() {
-        root = null;
+        xs = new double[16];
+        ys = new double[16];
+        lb = new int[16];
+        rt = new int[16];
+        cnt = new int[16];
+        dead = new boolean[16];
         size = 0;
+        root = NONE;
+    }
+
+    // construct a balanced tree holding the given points (duplicates are kept once)
+    public KdTree(Point2D[] points) {
+        if (points == null)
+            throw new IllegalArgumentException();
+        double[] x = new double[points.length];
+        double[] y = new double[points.length];
+        for (int i = 0; i < points.length; i++) {
+            if (points[i] == null)
+                throw new IllegalArgumentException();
+            x[i] = points[i].x();
+            y[i] = points[i].y();
+        }
+        build(x, y);
+    }
+
+    // construct a balanced tree holding the points (x[i], y[i]); the arrays are not modified
+    public KdTree(double[] x, double[] y) {
+        if (x == null || y == null || x.length != y.length)
+            throw new IllegalArgumentException();
+        build(x.clone(), y.clone());
+    }
+
+    // a read-only view of the points inserted so far. It shares the arrays of this
+    // tree, which from then on only appends nodes past the snapshot's size and links
+    // them from nodes that had no child; to delete a point or rebuild a subtree it
+    // copies the nodes on the path from the root first. So queries on the snapshot
+    // ignore any child numbered size or above and can run on other threads while
+    // this tree changes. The subtree sizes in cnt do change in place, so a snapshot
+    // does not trust them.
+    KdTree snapshot() {
+        shared = true;
+        return new KdTree(this);
+    }
+
+    private KdTree(KdTree that) {
+        xs = that.xs;
+        ys = that.ys;
+        lb = that.lb;
+        rt = that.rt;
+        cnt = that.cnt;
+        dead = that.dead;
+        size = that.size;
+        root = that.root;
+        live = that.live;
+        tombstones = that.tombstones;
+        readOnly = true;
+    }
+
+    // a balanced tree holding the points of this one
+    KdTree rebuilt() {
+        KdTree t = new KdTree();
+        double[] x = new double[live], y = new double[live];
+        if (has(root))
+            collect(root, x, y, 0);
+        t.load(x, y, live);
+        return t;
+    }
+
+    // write the points to a file that MappedKdTree.open() can map: "KDT1", the number
+    // of nodes, then each node in preorder as its x and y, the index of its right/top
+    // child (-1 if none) and the number of nodes in its subtree, all big-endian.
+    // Deleted points are dropped first, and a snapshot is saved rebalanced
+    public void save(String filename) throws IOException {
+        KdTree t = tombstones == 0 && !readOnly ? this : rebuilt();
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(filename), 1 << 16))) {
+            out.writeInt(MappedKdTree.MAGIC);
+            out.writeInt(t.live);
+            if (t.has(t.root))
+                t.save(out, t.root, 0);
+        }
+    }
+
+    // write the subtree at n, numbering its nodes in preorder from at on
+    private void save(DataOutputStream out, int n, int at) throws IOException {
+        int left = has(lb[n]) ? cnt[lb[n]] : 0;
+        out.writeDouble(xs[n]);
+        out.writeDouble(ys[n]);
+        out.writeInt(has(rt[n]) ? at + 1 + left : NONE);
+        out.writeInt(cnt[n]);
+        if (has(lb[n]))
+            save(out, lb[n], at + 1);
+        if (has(rt[n]))
+            save(out, rt[n], at + 1 + left);
     }
 
     // is the set empty?
     public boolean isEmpty() {
-        return size == 0;
+        return live == 0;
     }
 
     // number of points in the set
     public int size() {
-        return size;
+        return live;
     }
 
     // add the point to the set (if it is not already in the set)
     public void insert(Point2D p) {
         if (p == null)
             throw new IllegalArgumentException();
-        insert(p, root, VERTICAL);
+        if (readOnly)
+            throw new UnsupportedOperationException("snapshots are read-only");
+        double x = p.x(), y = p.y();
+        int len = descend(x, y);
+        // 如果遇到重复的点，就不操作；遇到已删除的同一个点，就把它恢复
+        if (len > 0 && xs[path[len - 1]] == x && ys[path[len - 1]] == y) {
+            if (dead[path[len - 1]])
+                mark(len, false);
+            return;
+        }
+        int leaf = add(x, y);
+        // 如果root为空，则新点就是root
+        if (len == 0)
+            root = leaf;
+        else if (less(x, y, path[len - 1], orientation(len - 1)))
+            lb[path[len - 1]] = leaf;
+        else
+            rt[path[len - 1]] = leaf;
+        for (int i = 0; i < len; i++)
+            cnt[path[i]]++;
+        live++;
+        if (len > Math.log(live + tombstones) / Math.log(1 / ALPHA))
+            rebalance(len, leaf);
+        compactIfWasteful();
     }
 
-    private void insert(Point2D p, Node n, boolean orientation) {
-        // 如果root为空，则先设置为root点
-        if (n == null) {
-            root = new Node(p, new RectHV(0, 0, 1, 1));
-            size++;
-            return;
+    // remove the point from the set (if it is in the set)
+    public void delete(Point2D p) {
+        if (p == null)
+            throw new IllegalArgumentException();
+        if (readOnly)
+            throw new UnsupportedOperationException("snapshots are read-only");
+        double x = p.x(), y = p.y();
+        int len = descend(x, y);
+        // 节点留在树里继续分割区域，只是不再算作集合里的点，下次重建时去掉
+        if (len > 0 && xs[path[len - 1]] == x && ys[path[len - 1]] == y && !dead[path[len - 1]]) {
+            mark(len, true);
+            compactIfWasteful();
         }
-        // 如果遇到重复的点，就不操作
-        if (n.p.equals(p)) {
-            return;
+    }
+
+    // walk from the root towards (x, y), recording the nodes passed in path; returns
+    // their number, the last one being the node of (x, y) if there is one
+    private int descend(double x, double y) {
+        if (path == null)
+            path = new int[64];
+        int len = 0;
+        boolean orientation = VERTICAL;
+        for (int n = root; has(n); orientation = !orientation) {
+            if (len == path.length)
+                path = Arrays.copyOf(path, 2 * len);
+            path[len++] = n;
+            if (xs[n] == x && ys[n] == y)
+                break;
+            n = less(x, y, n, orientation) ? lb[n] : rt[n];
         }
-        // 如果这一层的点，将该区域垂直分割成两部分，则比较该层点的横坐标和p的横坐标
-        if (orientation == VERTICAL) {
-            // 如果p点在n节点的左边，去左子树
-            if (p.x() < n.p.x()) {
-                if (n.lb == null) {
-                    // 节点对应的矩形，即是其父节点将它自己的矩形区域分割成两部分，左右子树节点的矩形区域分别对应这两部分
-                    n.lb = new Node(p, new RectHV(n.rect.xmin(), n.rect.ymin(), n.p.x(),
-                            n.rect.ymax()));
-                    size++;
-                }
-                else
-                    insert(p, n.lb, !orientation);
-            }
-            else {
-                if (n.rt == null) {
-                    n.rt = new Node(p, new RectHV(n.p.x(), n.rect.ymin(), n.rect.xmax(),
-                            n.rect.ymax()));
-                    size++;
-                }
-                else
-                    insert(p, n.rt, !orientation);
-            }
+        return len;
+    }
+
+    // does (x, y) belong in the left/bottom subtree of node n? Points compare on the
+    // splitting coordinate and, if that is equal, on the other one, so no two points
+    // tie and a rebuild can always split at an exact median
+    private boolean less(double x, double y, int n, boolean orientation) {
+        if (orientation == VERTICAL)
+            return x < xs[n] || x == xs[n] && y < ys[n];
+        return y < ys[n] || y == ys[n] && x < xs[n];
+    }
+
+    // the orientation of the nodes at the given depth, the root's being 0
+    private static boolean orientation(int depth) {
+        return depth % 2 == 0 ? VERTICAL : !VERTICAL;
+    }
+
+    // delete the point of the last node on path, or bring it back
+    private void mark(int len, boolean delete) {
+        // 有快照在用这些节点时不能原地修改，先复制从root到它的整条路径
+        if (shared)
+            copyPath(len);
+        dead[path[len - 1]] = delete;
+        for (int i = 0; i < len; i++)
+            cnt[path[i]] += delete ? -1 : 1;
+        live += delete ? -1 : 1;
+        tombstones += delete ? 1 : -1;
+    }
+
+    // replace the first len nodes of path, a path down from the root, with copies
+    // linked to each other, and make the first copy the root
+    private void copyPath(int len) {
+        int prev = NONE;
+        for (int i = 0; i < len; i++) {
+            int n = path[i];
+            int c = add(xs[n], ys[n]);
+            lb[c] = lb[n];
+            rt[c] = rt[n];
+            cnt[c] = cnt[n];
+            dead[c] = dead[n];
+            if (prev == NONE)
+                root = c;
+            else if (lb[prev] == n)
+                lb[prev] = c;
+            else
+                rt[prev] = c;
+            path[i] = c;
+            prev = c;
         }
-        // 如果这一层的点，将该区域水平分割成两部分，则比较该层点的纵坐标和p的纵坐标
-        else {
-            if (p.y() < n.p.y()) {
-                if (n.lb == null) {
-                    n.lb = new Node(p, new RectHV(n.rect.xmin(), n.rect.ymin(), n.rect.xmax(),
-                            n.p.y()));
-                    size++;
-                }
-                else
-                    insert(p, n.lb, !orientation);
+    }
+
+    // the new leaf at depth len is deeper than log base 1/ALPHA of the number of
+    // nodes: climb from it to the first ancestor with a child holding more than ALPHA
+    // of its nodes, and rebuild that subtree balanced. The tree then stays within
+    // O(log n) depth whatever the order of inserts; rebuilding t nodes takes
+    // O(t log t) and is paid for by the O(t) inserts it took to unbalance them.
+    private void rebalance(int len, int leaf) {
+        int child = leaf, s = 1;
+        for (int i = len - 1; i >= 0; i--) {
+            int u = path[i];
+            int t = s + 1 + nodes(lb[u] == child ? rt[u] : lb[u]);
+            if (s > ALPHA * t) {
+                rebuild(i, t);
+                return;
             }
-            else {
-                if (n.rt == null) {
-                    n.rt = new Node(p, new RectHV(n.rect.xmin(), n.p.y(), n.rect.xmax(),
-                            n.rect.ymax()));
-                    size++;
-                }
-                else
-                    insert(p, n.rt, !orientation);
+            child = u;
+            s = t;
+        }
+    }
+
+    // number of nodes, dead or not, in the subtree at n
+    private int nodes(int n) {
+        return has(n) ? 1 + nodes(lb[n]) + nodes(rt[n]) : 0;
+    }
+
+    // replace the subtree at path[i], which has t nodes, with a balanced one built
+    // from its points, dropping its dead nodes. The new subtree is built in new nodes
+    // at the end of the arrays; unless a snapshot shares them, it is then moved into
+    // the old subtree's nodes, otherwise those become unreachable
+    private void rebuild(int i, int t) {
+        int u = path[i], m = cnt[u];
+        reserve(size + m);
+        collect(u, xs, ys, size);
+        Arrays.fill(dead, size, size + m, false);
+        build(size, size + m, orientation(i), new SplittableRandom(size));
+        tombstones -= t - m;
+        if (!shared) {
+            int[] slot = new int[t];
+            nodes(u, slot, 0);
+            // 新子树按前序建好，第k个节点搬到旧子树前序的第k个节点上，旧子树的根正好还是u
+            for (int k = 0; k < m; k++) {
+                int from = size + k, to = slot[k];
+                xs[to] = xs[from];
+                ys[to] = ys[from];
+                lb[to] = lb[from] == NONE ? NONE : slot[lb[from] - size];
+                rt[to] = rt[from] == NONE ? NONE : slot[rt[from] - size];
+                cnt[to] = cnt[from];
+                dead[to] = false;
             }
+            return;
+        }
+        int top = size;
+        size += m;
+        if (i == 0) {
+            root = top;
+            return;
+        }
+        copyPath(i);
+        if (lb[path[i - 1]] == u)
+            lb[path[i - 1]] = top;
+        else
+            rt[path[i - 1]] = top;
+    }
+
+    // write the nodes of the subtree at n to slot in preorder from index at on;
+    // returns the index after the last one written
+    private int nodes(int n, int[] slot, int at) {
+        slot[at++] = n;
+        if (has(lb[n]))
+            at = nodes(lb[n], slot, at);
+        if (has(rt[n]))
+            at = nodes(rt[n], slot, at);
+        return at;
+    }
+
+    // rebuild the whole tree into new arrays once dead nodes outnumber the points,
+    // or unreachable nodes outnumber the reachable ones
+    private void compactIfWasteful() {
+        if (tombstones > live || size - live - tombstones > live + tombstones) {
+            double[] x = new double[live], y = new double[live];
+            if (has(root))
+                collect(root, x, y, 0);
+            load(x, y, live);
+        }
+    }
+
+    // write the points of the subtree at n to x and y from index at on;
+    // returns the index after the last one written
+    private int collect(int n, double[] x, double[] y, int at) {
+        if (!dead[n]) {
+            x[at] = xs[n];
+            y[at++] = ys[n];
         }
+        if (has(lb[n]))
+            at = collect(lb[n], x, y, at);
+        if (has(rt[n]))
+            at = collect(rt[n], x, y, at);
+        return at;
+    }
+
+    // is c a node of this tree? A snapshot's arrays can already hold links to
+    // nodes added after it was taken
+    private boolean has(int c) {
+        return c >= 0 && c < size;
+    }
+
+    // a new leaf holding (x, y)
+    private int add(double x, double y) {
+        reserve(size + 1);
+        xs[size] = x;
+        ys[size] = y;
+        lb[size] = NONE;
+        rt[size] = NONE;
+        cnt[size] = 1;
+        dead[size] = false;
+        return size++;
+    }
+
+    // make room for cap nodes; once the arrays are copied, snapshots no longer share them
+    private void reserve(int cap) {
+        if (cap <= xs.length)
+            return;
+        cap = Math.max(cap, Math.max(16, 2 * xs.length));
+        xs = Arrays.copyOf(xs, cap);
+        ys = Arrays.copyOf(ys, cap);
+        lb = Arrays.copyOf(lb, cap);
+        rt = Arrays.copyOf(rt, cap);
+        cnt = Arrays.copyOf(cnt, cap);
+        dead = Arrays.copyOf(dead, cap);
+        shared = false;
     }
 
     // does the set contain point p?
     public boolean contains(Point2D p) {
         if (p == null)
             throw new IllegalArgumentException();
-        return contains(p, root, VERTICAL);
-    }
-
-    private boolean contains(Point2D p, Node n, boolean orientation) {
-        if (n == null)
-            return false;
-        if (n.p.equals(p))
-            return true;
-        if (orientation == VERTICAL) {
-            if (p.x() < n.p.x())
-                return contains(p, n.lb, !orientation);
-            else
-                return contains(p, n.rt, !orientation);
-        }
-        else {
-            if (p.y() < n.p.y())
-                return contains(p, n.lb, !orientation);
-            else
-                return contains(p, n.rt, !orientation);
+        double x = p.x(), y = p.y();
+        boolean orientation = VERTICAL;
+        for (int n = root; has(n); orientation = !orientation) {
+            if (xs[n] == x && ys[n] == y)
+                return !dead[n];
+            n = less(x, y, n, orientation) ? lb[n] : rt[n];
         }
+        return false;
     }
 
     // draw all points to standard draw
     public void draw() {
-        draw(root, VERTICAL);
+        if (has(root))
+            draw(root, VERTICAL, 0, 0, 1, 1);
     }
 
-    private void draw(Node n, boolean orientation) {
+    private void draw(int n, boolean orientation, double xmin, double ymin, double xmax, double ymax) {
         StdDraw.setPenColor(StdDraw.BLACK);
         StdDraw.setPenRadius(0.01);
-        n.p.draw();
+        if (!dead[n])
+            StdDraw.point(xs[n], ys[n]);
         StdDraw.setPenRadius();
         if (orientation == VERTICAL) {
             StdDraw.setPenColor(StdDraw.RED);
-            StdDraw.line(n.p.x(), n.rect.ymin(), n.p.x(), n.rect.ymax());
+            StdDraw.line(xs[n], ymin, xs[n], ymax);
+            if (has(lb[n]))
+                draw(lb[n], !orientation, xmin, ymin, xs[n], ymax);
+            if (has(rt[n]))
+                draw(rt[n], !orientation, xs[n], ymin, xmax, ymax);
         }
         else {
             StdDraw.setPenColor(StdDraw.BLUE);
-            StdDraw.line(n.rect.xmin(), n.p.y(), n.rect.xmax(), n.p.y());
+            StdDraw.line(xmin, ys[n], xmax, ys[n]);
+            if (has(lb[n]))
+                draw(lb[n], !orientation, xmin, ymin, xmax, ys[n]);
+            if (has(rt[n]))
+                draw(rt[n], !orientation, xmin, ys[n], xmax, ymax);
+        }
+    }
+
+    // draw the points in viewport and the splitting lines through it to standard draw,
+    // as one width x height picture (see render) placed over viewport. Pass the size
+    // of the canvas area viewport takes up, so that each pixel is drawn once
+    public void draw(RectHV viewport, int width, int height) {
+        raster(viewport, width, height).draw(viewport);
+    }
+
+    // an image of the points in viewport and the splitting lines through it, drawn
+    // as draw() does but in one pass over the tree that skips subtrees outside viewport
+    // and draws a subtree covering only a pixel or two as one point. It visits a few
+    // nodes per pixel of the image, however many points there are
+    public BufferedImage render(RectHV viewport, int width, int height) {
+        return raster(viewport, width, height).image();
+    }
+
+    private Raster raster(RectHV viewport, int width, int height) {
+        Raster r = new Raster(viewport, width, height);
+        if (has(root)) {
+            // 先画所有分割线，再画点，点不会被后画的线盖住
+            render(r, viewport, true, root, VERTICAL, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                    Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+            render(r, viewport, false, root, VERTICAL, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                    Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+        }
+        return r;
+    }
+
+    // draw the lines, or the points, of the subtree at n, whose region [xmin, xmax] x [ymin, ymax]
+    // overlaps viewport
+    private void render(Raster r, RectHV viewport, boolean lines, int n, boolean orientation,
+                        double xmin, double ymin, double xmax, double ymax) {
+        // 只看区域落在viewport里的部分：树边上的区域一直延伸到无穷远，不裁剪的话永远不会小于一个像素
+        if (Math.min(xmax, viewport.xmax()) - Math.max(xmin, viewport.xmin()) < r.detailWidth()
+                && Math.min(ymax, viewport.ymax()) - Math.max(ymin, viewport.ymin()) < r.detailHeight()) {
+            int p = lines ? NONE : anyLive(n);
+            if (p != NONE)
+                r.point(xs[p], ys[p], StdDraw.BLACK.getRGB());
+            return;
+        }
+        double x = xs[n], y = ys[n];
+        if (!lines && !dead[n])
+            r.point(x, y, StdDraw.BLACK.getRGB());
+        if (orientation == VERTICAL) {
+            if (lines)
+                r.vertical(x, Math.max(ymin, viewport.ymin()), Math.min(ymax, viewport.ymax()), StdDraw.RED.getRGB());
+            if (has(lb[n]) && viewport.xmin() <= x)
+                render(r, viewport, lines, lb[n], !orientation, xmin, ymin, x, ymax);
+            if (has(rt[n]) && viewport.xmax() >= x)
+                render(r, viewport, lines, rt[n], !orientation, x, ymin, xmax, ymax);
+        }
+        else {
+            if (lines)
+                r.horizontal(Math.max(xmin, viewport.xmin()), Math.min(xmax, viewport.xmax()), y, StdDraw.BLUE.getRGB());
+            if (has(lb[n]) && viewport.ymin() <= y)
+                render(r, viewport, lines, lb[n], !orientation, xmin, ymin, xmax, y);
+            if (has(rt[n]) && viewport.ymax() >= y)
+                render(r, viewport, lines, rt[n], !orientation, xmin, y, xmax, ymax);
         }
-        if (n.lb != null)
-            draw(n.lb, !orientation);
-        if (n.rt != null)
-            draw(n.rt, !orientation);
+    }
+
+    // a node of the subtree at n holding a point, or NONE if all are dead
+    private int anyLive(int n) {
+        if (!dead[n])
+            return n;
+        int p = has(lb[n]) ? anyLive(lb[n]) : NONE;
+        return p != NONE || !has(rt[n]) ? p : anyLive(rt[n]);
     }
 
     // all points that are inside the rectangle (or on the boundary)
@@ -166,19 +583,103 @@ public class KdTree {
         if (rect == null)
             throw new IllegalArgumentException();
         ArrayList<Point2D> a = new ArrayList<>();
-        range(rect, root, a);
+        range(rect, (x, y) -> a.add(new Point2D(x, y)));
         return a;
     }
 
-    private void range(RectHV rect, Node n, ArrayList<Point2D> a) {
-        if (n == null)
-            return;
-        if (rect.contains(n.p))
-            a.add(n.p);
-        if (n.lb != null && n.lb.rect.intersects(rect))
-            range(rect, n.lb, a);
-        if (n.rt != null && n.rt.rect.intersects(rect))
-            range(rect, n.rt, a);
+    // pass each point inside the rectangle (or on the boundary) to visitor, until it
+    // returns false; nothing is allocated for the points, so a caller that only needs
+    // the first few of them, or to fold them into a sum, stops without building a list
+    public void range(RectHV rect, PointVisitor visitor) {
+        if (rect == null || visitor == null)
+            throw new IllegalArgumentException();
+        if (has(root))
+            range(rect.xmin(), rect.ymin(), rect.xmax(), rect.ymax(), root, VERTICAL, Double.NEGATIVE_INFINITY,
+                    Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, visitor);
+    }
+
+    // visit the points of the subtree at n, whose points all lie in [xmin, xmax] x [ymin, ymax],
+    // that are inside [rxmin, rxmax] x [rymin, rymax]; false if visitor asked to stop
+    private boolean range(double rxmin, double rymin, double rxmax, double rymax, int n, boolean orientation,
+                          double xmin, double ymin, double xmax, double ymax, PointVisitor visitor) {
+        // 子树的区域整个落在矩形里时，其中的点都不用再比较坐标
+        if (rxmin <= xmin && xmax <= rxmax && rymin <= ymin && ymax <= rymax)
+            return visitAll(n, visitor);
+        double x = xs[n], y = ys[n];
+        if (!dead[n] && x >= rxmin && x <= rxmax && y >= rymin && y <= rymax && !visitor.visit(x, y))
+            return false;
+        // 左/下子树的点不大于分割线，右/上子树的点不小于分割线（坐标相等时由另一个坐标决定去哪边）
+        if (orientation == VERTICAL) {
+            if (has(lb[n]) && rxmin <= x
+                    && !range(rxmin, rymin, rxmax, rymax, lb[n], !orientation, xmin, ymin, x, ymax, visitor))
+                return false;
+            if (has(rt[n]) && rxmax >= x
+                    && !range(rxmin, rymin, rxmax, rymax, rt[n], !orientation, x, ymin, xmax, ymax, visitor))
+                return false;
+        }
+        else {
+            if (has(lb[n]) && rymin <= y
+                    && !range(rxmin, rymin, rxmax, rymax, lb[n], !orientation, xmin, ymin, xmax, y, visitor))
+                return false;
+            if (has(rt[n]) && rymax >= y
+                    && !range(rxmin, rymin, rxmax, rymax, rt[n], !orientation, xmin, y, xmax, ymax, visitor))
+                return false;
+        }
+        return true;
+    }
+
+    // visit every point of the subtree at n; false if visitor asked to stop
+    private boolean visitAll(int n, PointVisitor visitor) {
+        return (dead[n] || visitor.visit(xs[n], ys[n]))
+                && (!has(lb[n]) || visitAll(lb[n], visitor))
+                && (!has(rt[n]) || visitAll(rt[n], visitor));
+    }
+
+    // number of points inside the rectangle (or on the boundary); subtrees lying
+    // wholly inside it are counted from their stored sizes without being visited
+    public int count(RectHV rect) {
+        if (rect == null)
+            throw new IllegalArgumentException();
+        if (!has(root))
+            return 0;
+        return count(rect.xmin(), rect.ymin(), rect.xmax(), rect.ymax(), root, VERTICAL, Double.NEGATIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+    }
+
+    // number of points of the subtree at n, whose points all lie in [xmin, xmax] x [ymin, ymax],
+    // inside [rxmin, rxmax] x [rymin, rymax]
+    private int count(double rxmin, double rymin, double rxmax, double rymax, int n, boolean orientation,
+                      double xmin, double ymin, double xmax, double ymax) {
+        if (rxmin <= xmin && xmax <= rxmax && rymin <= ymin && ymax <= rymax)
+            return subtreeSize(n);
+        double x = xs[n], y = ys[n];
+        int c = !dead[n] && x >= rxmin && x <= rxmax && y >= rymin && y <= rymax ? 1 : 0;
+        if (orientation == VERTICAL) {
+            if (has(lb[n]) && rxmin <= x)
+                c += count(rxmin, rymin, rxmax, rymax, lb[n], !orientation, xmin, ymin, x, ymax);
+            if (has(rt[n]) && rxmax >= x)
+                c += count(rxmin, rymin, rxmax, rymax, rt[n], !orientation, x, ymin, xmax, ymax);
+        }
+        else {
+            if (has(lb[n]) && rymin <= y)
+                c += count(rxmin, rymin, rxmax, rymax, lb[n], !orientation, xmin, ymin, xmax, y);
+            if (has(rt[n]) && rymax >= y)
+                c += count(rxmin, rymin, rxmax, rymax, rt[n], !orientation, xmin, y, xmax, ymax);
+        }
+        return c;
+    }
+
+    // number of points in the subtree at n
+    private int subtreeSize(int n) {
+        if (!readOnly)
+            return cnt[n];
+        // 快照和原树共用cnt，里面可能已经算上了快照之后插入的点，只能数一遍
+        int c = dead[n] ? 0 : 1;
+        if (has(lb[n]))
+            c += subtreeSize(lb[n]);
+        if (has(rt[n]))
+            c += subtreeSize(rt[n]);
+        return c;
     }
 
     // a nearest neighbor in the set to point p; null if the set is empty
@@ -186,43 +687,364 @@ public class KdTree {
         if (p == null)
             throw new IllegalArgumentException();
         if (isEmpty()) return null;
-        minDis = Double.POSITIVE_INFINITY;
-        nearest = root.p;
-        return nearest(p, root);
-    }
-
-    private Point2D nearest(Point2D p, Node n) {
-        if (n == null)
-            return nearest;
-        if (n.p.distanceSquaredTo(p) < minDis) {
-            minDis = n.p.distanceSquaredTo(p);
-            nearest = n.p;
-        }
-        // 这两个boolean主要是防止重复访问子树。尤其是当p点正好在当前节点n的分割线上时，因为两边子树都contains该点p，
-        // 所以无法仅通过是否contains该点来判断是否已经访问过该节点。
-        boolean seenLB = false;
-        boolean seenRT = false;
-        // nearest的访问顺序也需要特别注意，在测试中有测试到该问题
-        // 访问顺序需要遵从：如果点p在当前节点n的某一子树的矩形区域内部，则先访问该子树；
-        // 如果点p距离当前节点的某一子树的矩形区域比另一子树的矩形区域更近，则先访问更近的子树；
-        // 此外，再次回到该节点，判断是否需要访问另一边子树时，若当前最短距离大于等于p点到另一边子树矩形的距离，则需要访问
-        if ((n.lb != null && n.lb.rect.contains(p))
-                || (n.lb != null && n.rt != null &&
-                n.lb.rect.distanceSquaredTo(p) < n.rt.rect.distanceSquaredTo(p))) {
-            nearest(p, n.lb);
-            seenLB = true;
-        }
-        else if ((n.rt != null && n.rt.rect.contains(p))
-                || (n.lb != null && n.rt != null &&
-                n.rt.rect.distanceSquaredTo(p) < n.lb.rect.distanceSquaredTo(p))) {
-            nearest(p, n.rt);
-            seenRT = true;
-        }
-        if (n.lb != null && !seenLB && minDis >= n.lb.rect.distanceSquaredTo(p))
-            nearest(p, n.lb);
-        if (n.rt != null && !seenRT && minDis >= n.rt.rect.distanceSquaredTo(p))
-            nearest(p, n.rt);
-        return nearest;
+        Neighbors best = new Neighbors(1);
+        nearest(p.x(), p.y(), root, VERTICAL, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, best);
+        return new Point2D(xs[best.node[0]], ys[best.node[0]]);
+    }
+
+    // the k points nearest to p, nearest first; all of them if the set has fewer
+    public Iterable<Point2D> nearest(Point2D p, int k) {
+        if (p == null || k < 0)
+            throw new IllegalArgumentException();
+        ArrayList<Point2D> a = new ArrayList<>();
+        if (isEmpty() || k == 0)
+            return a;
+        Neighbors best = new Neighbors(Math.min(k, live));
+        nearest(p.x(), p.y(), root, VERTICAL, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, best);
+        for (int n : best.drain())
+            a.add(new Point2D(xs[n], ys[n]));
+        return a;
+    }
+
+    // search the subtree at n, whose points all lie in [xmin, xmax] x [ymin, ymax]
+    private void nearest(double px, double py, int n, boolean orientation,
+                         double xmin, double ymin, double xmax, double ymax, Neighbors best) {
+        // p点到该子树矩形的距离不小于堆里最远的距离时，整棵子树都不用看
+        double dx = px < xmin ? xmin - px : px > xmax ? px - xmax : 0;
+        double dy = py < ymin ? ymin - py : py > ymax ? py - ymax : 0;
+        if (dx * dx + dy * dy >= best.bound())
+            return;
+        double x = xs[n], y = ys[n];
+        double d = (x - px) * (x - px) + (y - py) * (y - py);
+        if (d < best.bound() && !dead[n])
+            best.offer(d, n);
+        // 先访问点p所在的那一边子树，它离p更近，能更快地缩小堆里最远的距离
+        if (orientation == VERTICAL) {
+            if (px < x) {
+                if (has(lb[n]))
+                    nearest(px, py, lb[n], !orientation, xmin, ymin, x, ymax, best);
+                if (has(rt[n]))
+                    nearest(px, py, rt[n], !orientation, x, ymin, xmax, ymax, best);
+            }
+            else {
+                if (has(rt[n]))
+                    nearest(px, py, rt[n], !orientation, x, ymin, xmax, ymax, best);
+                if (has(lb[n]))
+                    nearest(px, py, lb[n], !orientation, xmin, ymin, x, ymax, best);
+            }
+        }
+        else {
+            if (py < y) {
+                if (has(lb[n]))
+                    nearest(px, py, lb[n], !orientation, xmin, ymin, xmax, y, best);
+                if (has(rt[n]))
+                    nearest(px, py, rt[n], !orientation, xmin, y, xmax, ymax, best);
+            }
+            else {
+                if (has(rt[n]))
+                    nearest(px, py, rt[n], !orientation, xmin, y, xmax, ymax, best);
+                if (has(lb[n]))
+                    nearest(px, py, lb[n], !orientation, xmin, ymin, xmax, y, best);
+            }
+        }
+    }
+
+    // all points at distance at most r from p, in no particular order
+    public Iterable<Point2D> withinRadius(Point2D p, double r) {
+        if (p == null || !(r >= 0))
+            throw new IllegalArgumentException();
+        ArrayList<Point2D> a = new ArrayList<>();
+        if (has(root))
+            withinRadius(p.x(), p.y(), r * r, root, VERTICAL, a);
+        return a;
+    }
+
+    private void withinRadius(double px, double py, double r2, int n, boolean orientation,
+                              ArrayList<Point2D> a) {
+        double x = xs[n], y = ys[n];
+        if (!dead[n] && (x - px) * (x - px) + (y - py) * (y - py) <= r2)
+            a.add(new Point2D(x, y));
+        // 只有分割线离p不超过r时才需要看另一边
+        double diff = orientation == VERTICAL ? px - x : py - y;
+        if (has(lb[n]) && (diff < 0 || diff * diff <= r2))
+            withinRadius(px, py, r2, lb[n], !orientation, a);
+        if (has(rt[n]) && (diff >= 0 || diff * diff <= r2))
+            withinRadius(px, py, r2, rt[n], !orientation, a);
+    }
+
+    // queries per fork/join task in the batch methods
+    private static final int BATCH_GRAIN = 1 << 10;
+
+    // a nearest point to each of the points (x[i], y[i]), written to
+    // (nearestX[i], nearestY[i]); NaN if the set is empty. Runs as join() does
+    public void nearest(double[] x, double[] y, double[] nearestX, double[] nearestY) {
+        if (x == null || y == null || nearestX == null || nearestY == null || y.length != x.length
+                || nearestX.length < x.length || nearestY.length < x.length)
+            throw new IllegalArgumentException();
+        join(x, y, 1, nearestX, nearestY);
+    }
+
+    // the k points nearest to each of the points (x[i], y[i]), nearest first, written
+    // to nearestX and nearestY from index i * k on; NaN past the end if the set has
+    // fewer than k points. A k-nearest-neighbor join, run as join() does
+    public void nearest(double[] x, double[] y, int k, double[] nearestX, double[] nearestY) {
+        if (x == null || y == null || nearestX == null || nearestY == null || y.length != x.length || k < 1
+                || nearestX.length < (long) x.length * k || nearestY.length < (long) x.length * k)
+            throw new IllegalArgumentException();
+        join(x, y, k, nearestX, nearestY);
+    }
+
+    // the k-nearest-neighbor join behind the batch nearest methods. The queries run
+    // in Z-order (Morton order), so consecutive ones walk mostly the same paths, and
+    // each starts with a bound from the previous one's answers: they are k distinct
+    // points, so the k nearest are no farther than the farthest of them. Runs in
+    // tasks on the common fork/join pool.
+    private void join(double[] x, double[] y, int k, double[] nearestX, double[] nearestY) {
+        if (isEmpty()) {
+            Arrays.fill(nearestX, 0, x.length * k, Double.NaN);
+            Arrays.fill(nearestY, 0, x.length * k, Double.NaN);
+            return;
+        }
+        int[] order = mortonOrder(x, y);
+        new Batch((lo, hi) -> {
+            Neighbors best = new Neighbors(Math.min(k, live));
+            int[] prev = {};
+            for (int j = lo; j < hi; j++) {
+                int q = order[j];
+                double px = x[q], py = y[q];
+                // 只用上一个查询的结果限定距离上界，不把它们放进堆里：遍历时还会再遇到这些节点，
+                // 放进去就会重复
+                double limit = prev.length > 0 ? 0 : Double.POSITIVE_INFINITY;
+                for (int n : prev)
+                    limit = Math.max(limit, (xs[n] - px) * (xs[n] - px) + (ys[n] - py) * (ys[n] - py));
+                best.clear(Math.nextUp(limit));
+                nearest(px, py, root, VERTICAL, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                        Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, best);
+                prev = best.drain();
+                int at = q * k;
+                for (int n : prev) {
+                    nearestX[at] = xs[n];
+                    nearestY[at++] = ys[n];
+                }
+                Arrays.fill(nearestX, at, q * k + k, Double.NaN);
+                Arrays.fill(nearestY, at, q * k + k, Double.NaN);
+            }
+        }, 0, order.length).invoke();
+    }
+
+    // the points inside each of the rectangles, written to outX and outY: those in
+    // rects[i] go to indices offsets[i] to offsets[i + 1] - 1. Returns the number of
+    // points found; if that is more than outX or outY can hold, only offsets is
+    // filled in, so the caller can grow the buffers and try again. Runs in Z-order
+    // of the rectangle centers on the common fork/join pool.
+    public int range(RectHV[] rects, int[] offsets, double[] outX, double[] outY) {
+        if (rects == null || offsets == null || outX == null || outY == null
+                || offsets.length < rects.length + 1)
+            throw new IllegalArgumentException();
+        double[] cx = new double[rects.length], cy = new double[rects.length];
+        for (int i = 0; i < rects.length; i++) {
+            if (rects[i] == null)
+                throw new IllegalArgumentException();
+            cx[i] = (rects[i].xmin() + rects[i].xmax()) / 2;
+            cy[i] = (rects[i].ymin() + rects[i].ymax()) / 2;
+        }
+        int[] order = mortonOrder(cx, cy);
+        // 先数出每个矩形里有多少点，算出各自在输出数组里的位置，再并行地各写各的那一段
+        new Batch((lo, hi) -> {
+            for (int j = lo; j < hi; j++) {
+                int q = order[j];
+                offsets[q + 1] = count(rects[q]);
+            }
+        }, 0, order.length).invoke();
+        offsets[0] = 0;
+        long total = 0;
+        for (int i = 1; i <= rects.length; i++) {
+            total += offsets[i];
+            if (total > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("more than 2^31 - 1 results");
+            offsets[i] = (int) total;
+        }
+        if (total > outX.length || total > outY.length)
+            return (int) total;
+        new Batch((lo, hi) -> {
+            for (int j = lo; j < hi; j++) {
+                int q = order[j];
+                int[] at = {offsets[q]};
+                range(rects[q], (x, y) -> {
+                    outX[at[0]] = x;
+                    outY[at[0]++] = y;
+                    return true;
+                });
+            }
+        }, 0, order.length).invoke();
+        return (int) total;
+    }
+
+    // the work of a batch method on the queries at positions [lo, hi) of its order
+    private interface Chunk {
+        void run(int lo, int hi);
+    }
+
+    // positions [lo, hi) of a batch, split in halves until small enough to run in turn
+    private static class Batch extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Chunk chunk;
+        private final int lo, hi;
+
+        Batch(Chunk chunk, int lo, int hi) {
+            this.chunk = chunk;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        protected void compute() {
+            if (hi - lo <= BATCH_GRAIN)
+                chunk.run(lo, hi);
+            else {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Batch(chunk, lo, mid), new Batch(chunk, mid, hi));
+            }
+        }
+    }
+
+    // the indices of the points (x[i], y[i]) sorted along a Z-order curve over
+    // their bounding box, 16 bits per axis
+    private static int[] mortonOrder(double[] x, double[] y) {
+        double xmin = Double.POSITIVE_INFINITY, ymin = Double.POSITIVE_INFINITY;
+        double xmax = Double.NEGATIVE_INFINITY, ymax = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < x.length; i++) {
+            xmin = Math.min(xmin, x[i]);
+            xmax = Math.max(xmax, x[i]);
+            ymin = Math.min(ymin, y[i]);
+            ymax = Math.max(ymax, y[i]);
+        }
+        double sx = xmax > xmin ? 65535 / (xmax - xmin) : 0;
+        double sy = ymax > ymin ? 65535 / (ymax - ymin) : 0;
+        long[] keys = new long[x.length];
+        for (int i = 0; i < x.length; i++) {
+            long z = spread((int) ((x[i] - xmin) * sx)) | spread((int) ((y[i] - ymin) * sy)) << 1;
+            keys[i] = z << 32 | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[x.length];
+        for (int i = 0; i < x.length; i++)
+            order[i] = (int) keys[i];
+        return order;
+    }
+
+    // the low 16 bits of v spread out to the even bits of the result
+    private static long spread(int v) {
+        long b = v & 0xFFFF;
+        b = (b | b << 8) & 0x00FF00FFL;
+        b = (b | b << 4) & 0x0F0F0F0FL;
+        b = (b | b << 2) & 0x33333333L;
+        b = (b | b << 1) & 0x55555555L;
+        return b;
+    }
+
+    // bulk load: drop duplicate points, then split each range at its median,
+    // alternating x and y, with the node first, its left/bottom subtree next and
+    // its right/top subtree last (preorder)
+    private void build(double[] x, double[] y) {
+        load(x, y, dedup(x, y));
+    }
+
+    // bulk load the n distinct points at the front of x and y into new arrays
+    private void load(double[] x, double[] y, int n) {
+        xs = Arrays.copyOf(x, Math.max(n, 16));
+        ys = Arrays.copyOf(y, Math.max(n, 16));
+        lb = new int[xs.length];
+        rt = new int[xs.length];
+        cnt = new int[xs.length];
+        dead = new boolean[xs.length];
+        size = n;
+        live = n;
+        tombstones = 0;
+        shared = false;
+        root = n > 0 ? 0 : NONE;
+        if (n > 0)
+            build(0, n, VERTICAL, new SplittableRandom(n));
+    }
+
+    // build the subtree of the points at [lo, hi) in place, rooted at lo
+    private void build(int lo, int hi, boolean orientation, SplittableRandom random) {
+        int mid = lo + (hi - lo) / 2;
+        select(lo, hi, mid, orientation, random);
+        // 把中位数换到lo作为节点，原来lo上的点比它小，于是[lo + 1, mid]是左/下子树，(mid, hi)是右/上子树
+        swap(lo, mid);
+        cnt[lo] = hi - lo;
+        lb[lo] = mid > lo ? lo + 1 : NONE;
+        rt[lo] = mid + 1 < hi ? mid + 1 : NONE;
+        if (mid > lo)
+            build(lo + 1, mid + 1, !orientation, random);
+        if (mid + 1 < hi)
+            build(mid + 1, hi, !orientation, random);
+    }
+
+    // put the k-th smallest of the points at [lo, hi), in the order less() uses at
+    // this orientation, at index k, smaller ones before it and larger ones after it
+    // (quickselect with random pivots, linear on average)
+    private void select(int lo, int hi, int k, boolean orientation, SplittableRandom random) {
+        hi--;
+        while (hi > lo) {
+            swap(lo, lo + random.nextInt(hi - lo + 1));
+            int i = lo, j = hi + 1;
+            while (true) {
+                while (less(xs[++i], ys[i], lo, orientation))
+                    if (i == hi) break;
+                while (less(xs[lo], ys[lo], --j, orientation))
+                    if (j == lo) break;
+                if (i >= j) break;
+                swap(i, j);
+            }
+            swap(lo, j);
+            if (j > k)
+                hi = j - 1;
+            else if (j < k)
+                lo = j + 1;
+            else
+                return;
+        }
+    }
+
+    private void swap(int i, int j) {
+        double t = xs[i];
+        xs[i] = xs[j];
+        xs[j] = t;
+        t = ys[i];
+        ys[i] = ys[j];
+        ys[j] = t;
+    }
+
+    // move the distinct points of x, y to the front, keeping the first of each;
+    // returns their number
+    private static int dedup(double[] x, double[] y) {
+        int cap = Integer.highestOneBit(Math.max(2 * x.length, 2)) << 1;
+        int[] table = new int[cap];     // index + 1 of a kept point, 0 if empty
+        int mask = cap - 1, n = 0;
+        for (int i = 0; i < x.length; i++) {
+            // +0.0把-0.0变成0.0，Point2D.equals认为它们相等
+            double px = x[i] + 0.0, py = y[i] + 0.0;
+            long bits = (Double.doubleToLongBits(px) * 31 + Double.doubleToLongBits(py)) * 0x9E3779B97F4A7C15L;
+            int slot = (int) (bits >>> 32) & mask;
+            boolean seen = false;
+            for (; table[slot] != 0; slot = (slot + 1) & mask) {
+                int j = table[slot] - 1;
+                if (x[j] == px && y[j] == py) {
+                    seen = true;
+                    break;
+                }
+            }
+            if (seen)
+                continue;
+            x[n] = px;
+            y[n] = py;
+            table[slot] = ++n;
+        }
+        return n;
     }
 
     // unit testing of the methods (optional)
@@ -241,6 +1063,49 @@ public class KdTree {
         System.out.println("(0.05, 0.03)?  " + kd.contains(new Point2D(0.05, 0.03)));
         System.out.println("(0.06, 0.04)?  " + kd.contains(new Point2D(0.06, 0.04)));
         System.out.println("(0.1, 0.3)?  " + kd.contains(new Point2D(0.1, 0.3)));
+        System.out.println("k-nearest join wrong  " + checkJoin(10000, 1000, 4));
+    }
+
+    // number of the m random queries whose k nearest, as found by the batch
+    // nearest(x, y, k, ...) on n random points, differ from a brute-force search:
+    // a wrong distance, or a point given twice
+    private static int checkJoin(int n, int m, int k) {
+        SplittableRandom random = new SplittableRandom(1);
+        double[] x = new double[n], y = new double[n];
+        for (int i = 0; i < n; i++) {
+            // x只取1000个值，制造坐标相同的点
+            x[i] = random.nextInt(1000) / 1000.0;
+            y[i] = random.nextDouble();
+        }
+        KdTree kd = new KdTree(x, y);
+        double[] qx = new double[m], qy = new double[m];
+        for (int i = 0; i < m; i++) {
+            qx[i] = random.nextDouble();
+            qy[i] = random.nextDouble();
+        }
+        double[] nx = new double[m * k], ny = new double[m * k];
+        kd.nearest(qx, qy, k, nx, ny);
+        int wrong = 0;
+        for (int q = 0; q < m; q++) {
+            double[] d = new double[n];
+            for (int i = 0; i < n; i++)
+                d[i] = (x[i] - qx[q]) * (x[i] - qx[q]) + (y[i] - qy[q]) * (y[i] - qy[q]);
+            Arrays.sort(d);
+            for (int j = 0; j < k; j++) {
+                int at = q * k + j;
+                boolean twice = false;
+                for (int i = q * k; i < at; i++)
+                    twice |= nx[i] == nx[at] && ny[i] == ny[at];
+                if (twice || (nx[at] - qx[q]) * (nx[at] - qx[q]) + (ny[at] - qy[q]) * (ny[at] - qy[q]) != d[j]) {
+                    wrong++;
+                    break;
+                }
+            }
+        }
+        return wrong;
     }
 }
 
+
+
+
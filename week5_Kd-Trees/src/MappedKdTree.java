@@ -0,0 +1,258 @@
+import edu.princeton.cs.algs4.Point2D;
+import edu.princeton.cs.algs4.RectHV;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+// a KdTree written by KdTree.save(), queried in place through a read-only memory
+// mapping: nothing is read into the heap, so opening is immediate whatever the size,
+// and processes mapping the same file share one copy of it in the page cache. The
+// mapping lasts until this object is garbage collected. Queries are thread-safe.
+public class MappedKdTree {
+    static final int MAGIC = 0x4B445431;    // "KDT1"
+    static final int HEADER = 8;            // MAGIC, number of nodes
+    static final int NODE = 24;             // x, y, right/top child, nodes in subtree
+    private static final int CHUNK_BITS = 26;   // nodes per mapping, which must stay under 2 GB
+    private static final int NONE = -1;
+    private static final boolean VERTICAL = true;
+
+    // 文件里的节点按前序排列：左/下子节点（如果有）就是下一个节点，子树占连续的一段，
+    // 所以只存右/上子节点的位置和子树的节点数
+    private final ByteBuffer[] chunks;
+    private final int size;
+    private final String filename;
+
+    private MappedKdTree(ByteBuffer[] chunks, int size, String filename) {
+        this.chunks = chunks;
+        this.size = size;
+        this.filename = filename;
+    }
+
+    // map a file written by KdTree.save()
+    public static MappedKdTree open(String filename) throws IOException {
+        try (FileChannel ch = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            if (ch.size() < HEADER)
+                throw new IOException(filename + ": not a KdTree file");
+            ByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+            if (header.getInt() != MAGIC)
+                throw new IOException(filename + ": not a KdTree file");
+            int n = header.getInt();
+            if (n < 0 || ch.size() != HEADER + (long) n * NODE)
+                throw new IOException(filename + ": truncated");
+            ByteBuffer[] chunks = new ByteBuffer[(int) (((long) n + (1 << CHUNK_BITS) - 1) >>> CHUNK_BITS)];
+            for (int c = 0; c < chunks.length; c++) {
+                long first = (long) c << CHUNK_BITS;
+                long nodes = Math.min(1 << CHUNK_BITS, n - first);
+                chunks[c] = ch.map(FileChannel.MapMode.READ_ONLY, HEADER + first * NODE, nodes * NODE);
+            }
+            return new MappedKdTree(chunks, n, filename);
+        }
+    }
+
+    private double x(int n) {
+        return chunks[n >>> CHUNK_BITS].getDouble((n & (1 << CHUNK_BITS) - 1) * NODE);
+    }
+
+    private double y(int n) {
+        return chunks[n >>> CHUNK_BITS].getDouble((n & (1 << CHUNK_BITS) - 1) * NODE + 8);
+    }
+
+    // the right/top child of n, or NONE
+    private int right(int n) {
+        int r = chunks[n >>> CHUNK_BITS].getInt((n & (1 << CHUNK_BITS) - 1) * NODE + 16);
+        if (r != NONE && (r <= n || r >= size))
+            throw new IllegalStateException(filename + ": corrupt node " + n);
+        return r;
+    }
+
+    // number of nodes in the subtree at n, which are n and the ones right after it
+    private int nodes(int n) {
+        int c = chunks[n >>> CHUNK_BITS].getInt((n & (1 << CHUNK_BITS) - 1) * NODE + 20);
+        if (c < 1 || (long) n + c > size)
+            throw new IllegalStateException(filename + ": corrupt node " + n);
+        return c;
+    }
+
+    // the left/bottom child of n, or NONE
+    private int left(int n) {
+        return nodes(n) > 1 && right(n) != n + 1 ? n + 1 : NONE;
+    }
+
+    // same order as KdTree.less: the splitting coordinate first, then the other one
+    private boolean less(double x, double y, int n, boolean orientation) {
+        if (orientation == VERTICAL)
+            return x < x(n) || x == x(n) && y < y(n);
+        return y < y(n) || y == y(n) && x < x(n);
+    }
+
+    // is the set empty?
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // number of points in the set
+    public int size() {
+        return size;
+    }
+
+    // does the set contain point p?
+    public boolean contains(Point2D p) {
+        if (p == null)
+            throw new IllegalArgumentException();
+        double x = p.x(), y = p.y();
+        int n = size > 0 ? 0 : NONE;
+        for (boolean orientation = VERTICAL; n != NONE; orientation = !orientation) {
+            if (x(n) == x && y(n) == y)
+                return true;
+            n = less(x, y, n, orientation) ? left(n) : right(n);
+        }
+        return false;
+    }
+
+    // all points that are inside the rectangle (or on the boundary)
+    public Iterable<Point2D> range(RectHV rect) {
+        if (rect == null)
+            throw new IllegalArgumentException();
+        ArrayList<Point2D> a = new ArrayList<>();
+        range(rect, (x, y) -> a.add(new Point2D(x, y)));
+        return a;
+    }
+
+    // pass each point inside the rectangle (or on the boundary) to visitor, until it returns false
+    public void range(RectHV rect, PointVisitor visitor) {
+        if (rect == null || visitor == null)
+            throw new IllegalArgumentException();
+        if (size > 0)
+            range(rect.xmin(), rect.ymin(), rect.xmax(), rect.ymax(), 0, VERTICAL, Double.NEGATIVE_INFINITY,
+                    Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, visitor);
+    }
+
+    private boolean range(double rxmin, double rymin, double rxmax, double rymax, int n, boolean orientation,
+                          double xmin, double ymin, double xmax, double ymax, PointVisitor visitor) {
+        // 子树的区域整个落在矩形里时，它的点在文件里是连续的一段，顺序读出来就行
+        if (rxmin <= xmin && xmax <= rxmax && rymin <= ymin && ymax <= rymax) {
+            for (int i = n, end = n + nodes(n); i < end; i++)
+                if (!visitor.visit(x(i), y(i)))
+                    return false;
+            return true;
+        }
+        double x = x(n), y = y(n);
+        if (x >= rxmin && x <= rxmax && y >= rymin && y <= rymax && !visitor.visit(x, y))
+            return false;
+        int lb = left(n), rt = right(n);
+        if (orientation == VERTICAL) {
+            if (lb != NONE && rxmin <= x
+                    && !range(rxmin, rymin, rxmax, rymax, lb, !orientation, xmin, ymin, x, ymax, visitor))
+                return false;
+            if (rt != NONE && rxmax >= x
+                    && !range(rxmin, rymin, rxmax, rymax, rt, !orientation, x, ymin, xmax, ymax, visitor))
+                return false;
+        }
+        else {
+            if (lb != NONE && rymin <= y
+                    && !range(rxmin, rymin, rxmax, rymax, lb, !orientation, xmin, ymin, xmax, y, visitor))
+                return false;
+            if (rt != NONE && rymax >= y
+                    && !range(rxmin, rymin, rxmax, rymax, rt, !orientation, xmin, y, xmax, ymax, visitor))
+                return false;
+        }
+        return true;
+    }
+
+    // number of points inside the rectangle (or on the boundary)
+    public int count(RectHV rect) {
+        if (rect == null)
+            throw new IllegalArgumentException();
+        if (size == 0)
+            return 0;
+        return count(rect.xmin(), rect.ymin(), rect.xmax(), rect.ymax(), 0, VERTICAL, Double.NEGATIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+    }
+
+    private int count(double rxmin, double rymin, double rxmax, double rymax, int n, boolean orientation,
+                      double xmin, double ymin, double xmax, double ymax) {
+        if (rxmin <= xmin && xmax <= rxmax && rymin <= ymin && ymax <= rymax)
+            return nodes(n);
+        double x = x(n), y = y(n);
+        int c = x >= rxmin && x <= rxmax && y >= rymin && y <= rymax ? 1 : 0;
+        int lb = left(n), rt = right(n);
+        if (orientation == VERTICAL) {
+            if (lb != NONE && rxmin <= x)
+                c += count(rxmin, rymin, rxmax, rymax, lb, !orientation, xmin, ymin, x, ymax);
+            if (rt != NONE && rxmax >= x)
+                c += count(rxmin, rymin, rxmax, rymax, rt, !orientation, x, ymin, xmax, ymax);
+        }
+        else {
+            if (lb != NONE && rymin <= y)
+                c += count(rxmin, rymin, rxmax, rymax, lb, !orientation, xmin, ymin, xmax, y);
+            if (rt != NONE && rymax >= y)
+                c += count(rxmin, rymin, rxmax, rymax, rt, !orientation, xmin, y, xmax, ymax);
+        }
+        return c;
+    }
+
+    // the closest node found so far by a nearest-neighbor query
+    private static class Best {
+        private double dist = Double.POSITIVE_INFINITY;     // squared
+        private int node = NONE;
+    }
+
+    // a nearest neighbor in the set to point p; null if the set is empty
+    public Point2D nearest(Point2D p) {
+        if (p == null)
+            throw new IllegalArgumentException();
+        if (isEmpty()) return null;
+        Best best = new Best();
+        nearest(p.x(), p.y(), 0, VERTICAL, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, best);
+        return new Point2D(x(best.node), y(best.node));
+    }
+
+    private void nearest(double px, double py, int n, boolean orientation,
+                         double xmin, double ymin, double xmax, double ymax, Best best) {
+        double dx = px < xmin ? xmin - px : px > xmax ? px - xmax : 0;
+        double dy = py < ymin ? ymin - py : py > ymax ? py - ymax : 0;
+        if (dx * dx + dy * dy >= best.dist)
+            return;
+        double x = x(n), y = y(n);
+        double d = (x - px) * (x - px) + (y - py) * (y - py);
+        if (d < best.dist) {
+            best.dist = d;
+            best.node = n;
+        }
+        int lb = left(n), rt = right(n);
+        // 先访问点p所在的那一边子树
+        if (orientation == VERTICAL) {
+            if (px < x) {
+                if (lb != NONE)
+                    nearest(px, py, lb, !orientation, xmin, ymin, x, ymax, best);
+                if (rt != NONE)
+                    nearest(px, py, rt, !orientation, x, ymin, xmax, ymax, best);
+            }
+            else {
+                if (rt != NONE)
+                    nearest(px, py, rt, !orientation, x, ymin, xmax, ymax, best);
+                if (lb != NONE)
+                    nearest(px, py, lb, !orientation, xmin, ymin, x, ymax, best);
+            }
+        }
+        else {
+            if (py < y) {
+                if (lb != NONE)
+                    nearest(px, py, lb, !orientation, xmin, ymin, xmax, y, best);
+                if (rt != NONE)
+                    nearest(px, py, rt, !orientation, xmin, y, xmax, ymax, best);
+            }
+            else {
+                if (rt != NONE)
+                    nearest(px, py, rt, !orientation, xmin, y, xmax, ymax, best);
+                if (lb != NONE)
+                    nearest(px, py, lb, !orientation, xmin, ymin, xmax, y, best);
+            }
+        }
+    }
+}
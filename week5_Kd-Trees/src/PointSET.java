@@ -3,8 +3,12 @@
 
 import edu.princeton.cs.algs4.Point2D;
 import edu.princeton.cs.algs4.RectHV;
+import edu.princeton.cs.algs4.StdDraw;
 
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.NavigableSet;
 import java.util.TreeSet;
 
 public class PointSET {
@@ -33,6 +37,13 @@ public class PointSET {
         points.add(p);
     }
 
+    // remove the point from the set (if it is in the set)
+    public void delete(Point2D p) {
+        if (p == null)
+            throw new IllegalArgumentException();
+        points.remove(p);
+    }
+
     // does the set contain point p?
     public boolean contains(Point2D p) {
         if (p == null)
@@ -47,18 +58,69 @@ public class PointSET {
         }
     }
 
+    // draw the points in viewport to standard draw, as one width x height picture
+    // (see render) placed over viewport
+    public void draw(RectHV viewport, int width, int height) {
+        raster(viewport, width, height).draw(viewport);
+    }
+
+    // an image of the points in viewport, drawn straight into its pixels; only the
+    // points in viewport's band of y are looked at
+    public BufferedImage render(RectHV viewport, int width, int height) {
+        return raster(viewport, width, height).image();
+    }
+
+    private Raster raster(RectHV viewport, int width, int height) {
+        Raster r = new Raster(viewport, width, height);
+        range(viewport, (x, y) -> {
+            r.point(x, y, StdDraw.BLACK.getRGB());
+            return true;
+        });
+        return r;
+    }
+
     // all points that are inside the rectangle (or on the boundary)
     public Iterable<Point2D> range(RectHV rect) {
         if (rect == null)
             throw new IllegalArgumentException();
         ArrayList<Point2D> a = new ArrayList<>();
-        for (Point2D p : points) {
+        for (Point2D p : band(rect)) {
             if (rect.contains(p))
                 a.add(p);
         }
         return a;
     }
 
+    // pass each point inside the rectangle (or on the boundary) to visitor, until it returns false
+    public void range(RectHV rect, PointVisitor visitor) {
+        if (rect == null || visitor == null)
+            throw new IllegalArgumentException();
+        for (Point2D p : band(rect)) {
+            if (rect.contains(p) && !visitor.visit(p.x(), p.y()))
+                return;
+        }
+    }
+
+    // number of points inside the rectangle (or on the boundary)
+    public int count(RectHV rect) {
+        if (rect == null)
+            throw new IllegalArgumentException();
+        int c = 0;
+        for (Point2D p : band(rect)) {
+            if (rect.contains(p))
+                c++;
+        }
+        return c;
+    }
+
+    // the points with y between rect.ymin() and rect.ymax(): Point2D orders by y first,
+    // so only that part of the tree needs to be scanned
+    private NavigableSet<Point2D> band(RectHV rect) {
+        double ymin = Math.max(rect.ymin(), -Double.MAX_VALUE);
+        double ymax = Math.min(rect.ymax(), Double.MAX_VALUE);
+        return points.subSet(new Point2D(-Double.MAX_VALUE, ymin), true, new Point2D(Double.MAX_VALUE, ymax), true);
+    }
+
     // a nearest neighbor in the set to point p; null if the set is empty
     public Point2D nearest(Point2D p) {
         if (p == null)
@@ -75,6 +137,27 @@ public class PointSET {
         return near;
     }
 
+    // the k points nearest to p, nearest first; all of them if the set has fewer
+    public Iterable<Point2D> nearest(Point2D p, int k) {
+        if (p == null || k < 0)
+            throw new IllegalArgumentException();
+        ArrayList<Point2D> a = new ArrayList<>(points);
+        a.sort(Comparator.comparingDouble(p::distanceSquaredTo));
+        return new ArrayList<>(a.subList(0, Math.min(k, a.size())));
+    }
+
+    // all points at distance at most r from p, in no particular order
+    public Iterable<Point2D> withinRadius(Point2D p, double r) {
+        if (p == null || !(r >= 0))
+            throw new IllegalArgumentException();
+        ArrayList<Point2D> a = new ArrayList<>();
+        for (Point2D pp : points) {
+            if (p.distanceSquaredTo(pp) <= r * r)
+                a.add(pp);
+        }
+        return a;
+    }
+
     // unit testing of the methods (optional)
     public static void main(String[] args) {
         PointSET ps = new PointSET();
@@ -0,0 +1,5 @@
+// receives the points found by a range search one at a time, see KdTree.range(RectHV, PointVisitor)
+public interface PointVisitor {
+    // called with each point (x, y) found; return false to end the search early
+    boolean visit(double x, double y);
+}
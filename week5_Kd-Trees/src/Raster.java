@@ -0,0 +1,112 @@
+import edu.princeton.cs.algs4.RectHV;
+import edu.princeton.cs.algs4.StdDraw;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+// an offscreen width x height image of the region viewport of the plane, drawn by
+// writing its pixel array directly, for the point sets' render() and draw(viewport)
+// methods: a whole frame costs one call to standard draw instead of one per point
+class Raster {
+    static final int POINT_RADIUS = 1;  // points are squares of 2 * POINT_RADIUS + 1 pixels a side
+
+    private final BufferedImage image;
+    private final int[] pixels;     // row-major, the top row first
+    private final int width, height;
+    private final double xmin, ymin;
+    private final double sx, sy;    // pixels per unit
+
+    Raster(RectHV viewport, int width, int height) {
+        if (viewport == null || width < 1 || height < 1 || (long) width * height > Integer.MAX_VALUE
+                || !(viewport.width() > 0) || !(viewport.height() > 0)
+                || Double.isInfinite(viewport.width()) || Double.isInfinite(viewport.height()))
+            throw new IllegalArgumentException();
+        this.width = width;
+        this.height = height;
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        Arrays.fill(pixels, StdDraw.WHITE.getRGB());
+        xmin = viewport.xmin();
+        ymin = viewport.ymin();
+        sx = width / viewport.width();
+        sy = height / viewport.height();
+    }
+
+    // a region narrower than detailWidth and lower than detailHeight lies under about
+    // one point's square of pixels, so it can be drawn as any one of its points
+    double detailWidth() {
+        return (POINT_RADIUS + 1) / sx;
+    }
+
+    double detailHeight() {
+        return (POINT_RADIUS + 1) / sy;
+    }
+
+    // the column of x, maybe outside the image: columns farther out than a point's
+    // radius all become the same one, so a point there is not drawn
+    private int column(double x) {
+        return (int) Math.max(-POINT_RADIUS - 1, Math.min(width + POINT_RADIUS, Math.floor((x - xmin) * sx)));
+    }
+
+    // the row of y, maybe outside the image; y grows upwards, rows downwards
+    private int row(double y) {
+        return (int) Math.max(-POINT_RADIUS - 1, Math.min(height + POINT_RADIUS,
+                height - 1 - Math.floor((y - ymin) * sy)));
+    }
+
+    // a point at (x, y), as a square of POINT_RADIUS pixels around its pixel
+    void point(double x, double y, int rgb) {
+        int i = column(x), j = row(y);
+        for (int r = Math.max(j - POINT_RADIUS, 0); r <= Math.min(j + POINT_RADIUS, height - 1); r++)
+            for (int c = Math.max(i - POINT_RADIUS, 0); c <= Math.min(i + POINT_RADIUS, width - 1); c++)
+                pixels[r * width + c] = rgb;
+    }
+
+    // the segment from (x, y0) to (x, y1), y0 <= y1
+    void vertical(double x, double y0, double y1, int rgb) {
+        int c = column(x);
+        if (c < 0 || c >= width)
+            return;
+        for (int r = Math.max(row(y1), 0); r <= Math.min(row(y0), height - 1); r++)
+            pixels[r * width + c] = rgb;
+    }
+
+    // the segment from (x0, y) to (x1, y), x0 <= x1
+    void horizontal(double x0, double x1, double y, int rgb) {
+        int r = row(y);
+        if (r < 0 || r >= height)
+            return;
+        int c0 = Math.max(column(x0), 0), c1 = Math.min(column(x1), width - 1);
+        if (c0 <= c1)
+            Arrays.fill(pixels, r * width + c0, r * width + c1 + 1, rgb);
+    }
+
+    BufferedImage image() {
+        return image;
+    }
+
+    // show the image in standard draw, covering viewport. StdDraw only takes pictures
+    // from files, so it goes through a temporary PNG file; a new one each time, as the
+    // AWT image cache would show a rewritten file's old contents
+    void draw(RectHV viewport) {
+        try {
+            File file = File.createTempFile("raster", ".png");
+            try {
+                ImageIO.write(image, "png", file);
+                StdDraw.picture((viewport.xmin() + viewport.xmax()) / 2, (viewport.ymin() + viewport.ymax()) / 2,
+                        file.getPath(), viewport.width(), viewport.height());
+            }
+            finally {
+                file.delete();
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}